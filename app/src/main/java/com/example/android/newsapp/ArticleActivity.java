@@ -0,0 +1,103 @@
+package com.example.android.newsapp;
+
+import android.app.LoaderManager.LoaderCallbacks;
+import android.content.Context;
+import android.content.Intent;
+import android.content.Loader;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.TextView;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+/**
+ * Reads a news inside the app, from the body stored by the {@link ArticleStore}, so opening
+ * it needs neither a browser nor, once prefetched, the network. The browser is one tap away.
+ */
+public class ArticleActivity extends AppCompatActivity implements LoaderCallbacks<CharSequence> {
+
+    private static final String EXTRA_URL = "url";
+    private static final String EXTRA_TITLE = "title";
+    private static final String EXTRA_SECTION = "section";
+    private static final String EXTRA_AUTHOR = "author";
+
+    private static final int ARTICLE_LOADER_ID = 1;
+
+    @BindView(R.id.section) TextView mSectionTextView;
+    @BindView(R.id.title) TextView mTitleTextView;
+    @BindView(R.id.author) TextView mAuthorTextView;
+    @BindView(R.id.body) TextView mBodyTextView;
+    @BindView(R.id.loading_indicator) View mLoadingIndicator;
+    @BindView(R.id.open_in_browser) View mOpenInBrowserButton;
+
+    /**
+     * Web URL of the news read
+     */
+    private String mUrl;
+
+    /**
+     * Returns the intent reading the given news.
+     */
+    public static Intent newIntent(Context context, News news) {
+        return new Intent(context, ArticleActivity.class)
+                .putExtra(EXTRA_URL, news.getUrl())
+                .putExtra(EXTRA_TITLE, news.getTitle())
+                .putExtra(EXTRA_SECTION, news.getSectionName())
+                .putExtra(EXTRA_AUTHOR, news.getAuthor());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.article_activity);
+        ButterKnife.bind(this);
+
+        Intent intent = getIntent();
+        mUrl = intent.getStringExtra(EXTRA_URL);
+        mTitleTextView.setText(intent.getStringExtra(EXTRA_TITLE));
+        mSectionTextView.setText(intent.getStringExtra(EXTRA_SECTION));
+        mAuthorTextView.setText(intent.getStringExtra(EXTRA_AUTHOR));
+
+        mOpenInBrowserButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                openInBrowser();
+            }
+        });
+
+        getLoaderManager().initLoader(ARTICLE_LOADER_ID, null, this);
+    }
+
+    /**
+     * Sends an intent to a web browser to open the news.
+     */
+    private void openInBrowser() {
+        Intent websiteIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl));
+        if (websiteIntent.resolveActivity(getPackageManager()) != null) {
+            startActivity(websiteIntent);
+        }
+    }
+
+    @Override
+    public Loader<CharSequence> onCreateLoader(int i, Bundle bundle) {
+        return new ArticleLoader(this, mUrl);
+    }
+
+    @Override
+    public void onLoadFinished(Loader<CharSequence> loader, CharSequence article) {
+        mLoadingIndicator.setVisibility(View.GONE);
+        if (article != null) {
+            mBodyTextView.setText(article);
+        } else {
+            mBodyTextView.setText(R.string.article_unavailable);
+        }
+    }
+
+    @Override
+    public void onLoaderReset(Loader<CharSequence> loader) {
+        mBodyTextView.setText(null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.text.Html;
+
+/**
+ * Loads the body of one article for the reader, from the {@link ArticleStore} or else
+ * from the network, rendered from its HTML. Delivers null if it cannot be had.
+ */
+public class ArticleLoader extends AsyncTaskLoader<CharSequence> {
+
+    private final String mUrl;
+
+    private final FetchProfile mProfile;
+
+    /**
+     * Body last delivered
+     */
+    private CharSequence mArticle;
+
+    /**
+     * Aborts the download in flight, if any. Guarded by this loader.
+     */
+    private CancellationSignal mCancellationSignal;
+
+    /**
+     * Constructs a new {@link ArticleLoader}.
+     *
+     * @param context of the activity
+     * @param url     web URL of the article
+     */
+    public ArticleLoader(Context context, String url) {
+        super(context);
+        mUrl = url;
+        mProfile = FetchProfile.forActiveNetwork(context);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mArticle != null) {
+            deliverResult(mArticle);
+        } else {
+            forceLoad();
+        }
+    }
+
+    /**
+     * This is on a background thread.
+     */
+    @Override
+    public CharSequence loadInBackground() {
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            mCancellationSignal = new CancellationSignal();
+        }
+        try {
+            String body = ArticleStore.getInstance(getContext())
+                    .load(mUrl, mProfile, mCancellationSignal);
+            return body == null ? null : fromHtml(body);
+        } finally {
+            synchronized (this) {
+                mCancellationSignal = null;
+            }
+        }
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (this) {
+            if (mCancellationSignal != null) {
+                mCancellationSignal.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void deliverResult(CharSequence article) {
+        mArticle = article;
+        super.deliverResult(article);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static CharSequence fromHtml(String html) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Html.fromHtml(html, Html.FROM_HTML_MODE_LEGACY);
+        }
+        return Html.fromHtml(html);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Article bodies kept on disk for the in-app reader, so opening a news is a local read
+ * that works offline. The HTML bodies are gzipped, which shrinks them several times, and
+ * stored by web URL in the files directory, where the least recently read are evicted past
+ * {@link #MAX_BYTES}.
+ * <p>
+ * The bodies of the top news are downloaded ahead, as many as the {@link FetchProfile} of
+ * the network allows, by {@link #prefetchAsync} after a load and by the background
+ * {@link NewsPrefetch}.
+ */
+public final class ArticleStore {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ArticleStore.class.getSimpleName();
+
+    private static final String DIRECTORY = "articles";
+
+    /**
+     * Maximum size of the compressed bodies kept on disk
+     */
+    private static final long MAX_BYTES = 5 * 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static ArticleStore sInstance;
+
+    private final Context mContext;
+    private final DiskLruStore mFiles;
+
+    // One prefetch at a time, behind the ones asked for before
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, LOG_TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private ArticleStore(Context context) {
+        mContext = context;
+        mFiles = new DiskLruStore(new File(context.getFilesDir(), DIRECTORY), MAX_BYTES);
+    }
+
+    /**
+     * Returns the process wide store.
+     */
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the stored body of the news at the given web URL, or null if it is not stored.
+     * This reads from disk, so it must not be called on the main thread.
+     */
+    public String get(String webUrl) {
+        byte[] data = mFiles.get(webUrl);
+        if (data == null) {
+            return null;
+        }
+        try {
+            return gunzip(data);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading a stored article", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the body of the news at the given web URL, from disk, or else downloaded and
+     * stored. Returns null if it is neither stored nor could be downloaded. This is on a
+     * background thread.
+     *
+     * @throws android.os.OperationCanceledException if the signal was cancelled
+     */
+    public String load(String webUrl, FetchProfile profile, CancellationSignal signal) {
+        String body = get(webUrl);
+        if (body == null) {
+            body = download(webUrl, profile, signal);
+        }
+        return body;
+    }
+
+    /**
+     * Downloads and stores the bodies of the first news of the list that are not stored yet,
+     * as many as the profile allows. This is on a background thread.
+     *
+     * @throws android.os.OperationCanceledException if the signal was cancelled
+     */
+    public void prefetch(List<News> newsList, FetchProfile profile, CancellationSignal signal) {
+        int count = Math.min(profile.articleBodies, newsList.size());
+        for (int i = 0; i < count; i++) {
+            String webUrl = newsList.get(i).getUrl();
+            if (webUrl != null && !mFiles.contains(webUrl)) {
+                download(webUrl, profile, signal);
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #prefetch} on a background thread of the store. The list is copied first,
+     * so it may change afterwards.
+     */
+    public void prefetchAsync(List<News> newsList, final FetchProfile profile) {
+        if (newsList == null || profile.articleBodies == 0) {
+            return;
+        }
+        final List<News> topNews = new ArrayList<>(
+                newsList.subList(0, Math.min(profile.articleBodies, newsList.size())));
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(topNews, profile, null);
+            }
+        });
+    }
+
+    private String download(String webUrl, FetchProfile profile, CancellationSignal signal) {
+        String requestUrl = contentUrl(webUrl);
+        if (requestUrl == null) {
+            return null;
+        }
+        String body = QueryUtils.fetchArticleBody(requestUrl, profile, signal);
+        if (TextUtils.isEmpty(body)) {
+            return null;
+        }
+        try {
+            mFiles.put(webUrl, gzip(body));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem storing an article", e);
+        }
+        return body;
+    }
+
+    /**
+     * Returns the content API URL of the news at the given web URL, which shares its path.
+     */
+    private String contentUrl(String webUrl) {
+        String path = Uri.parse(webUrl).getPath();
+        if (TextUtils.isEmpty(path) || "/".equals(path)) {
+            return null;
+        }
+        return Uri.parse(mContext.getString(R.string.contentUrl)).buildUpon()
+                .path(path)
+                .appendQueryParameter(mContext.getString(R.string.showfields), mContext.getString(R.string.body))
+                .appendQueryParameter(mContext.getString(R.string.apiKey), mContext.getString(R.string.apiKeyDecrypt))
+                .toString();
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+        try {
+            gzipOutput.write(text.getBytes(UTF_8));
+        } finally {
+            gzipOutput.close();
+        }
+        return output.toByteArray();
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(data));
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), UTF_8);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
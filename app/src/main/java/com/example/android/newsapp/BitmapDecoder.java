@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Decodes encoded thumbnails at the size they are shown at instead of their source resolution.
+ * The bounds are read first to pick an {@code inSampleSize}, and the pixels are decoded into a
+ * bitmap from the {@link BitmapPool} when a large enough one is free.
+ */
+public final class BitmapDecoder {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = BitmapDecoder.class.getSimpleName();
+
+    private final int mTargetWidth;
+    private final int mTargetHeight;
+    private final Bitmap.Config mConfig;
+    private final BitmapPool mPool;
+
+    /**
+     * Constructs a new {@link BitmapDecoder}.
+     *
+     * @param targetWidth  width in pixels of the view the thumbnails are shown in
+     * @param targetHeight height in pixels of the view the thumbnails are shown in
+     * @param lowMemory    decode to RGB_565, half the memory of ARGB_8888 and no alpha
+     * @param pool         bitmaps to decode into
+     */
+    public BitmapDecoder(int targetWidth, int targetHeight, boolean lowMemory, BitmapPool pool) {
+        mTargetWidth = targetWidth;
+        mTargetHeight = targetHeight;
+        mConfig = lowMemory ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        mPool = pool;
+    }
+
+    /**
+     * Decodes the given image, or returns null if it is not a valid image.
+     */
+    public Bitmap decode(byte[] data) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                mTargetWidth, mTargetHeight);
+        options.inPreferredConfig = mConfig;
+        options.inMutable = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int width = divideRoundingUp(options.outWidth, options.inSampleSize);
+            int height = divideRoundingUp(options.outHeight, options.inSampleSize);
+            options.inBitmap = mPool.get(width * height * bytesPerPixel(mConfig));
+        }
+
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused for this image, decode into a new one
+            Log.w(LOG_TAG, "Problem reusing pooled bitmap", e);
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+    }
+
+    /**
+     * Returns the largest power of two that keeps both decoded sides at least as
+     * large as the requested ones.
+     */
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= reqWidth
+                && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static int divideRoundingUp(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? 2 : 4;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps bitmaps that are no longer shown, bucketed by their allocation size, so that
+ * {@link BitmapDecoder} can decode new thumbnails into them through
+ * {@link android.graphics.BitmapFactory.Options#inBitmap} instead of allocating.
+ * Reusing a bitmap for an image of a different size needs KitKat, so on older
+ * releases the pool stays empty.
+ */
+public final class BitmapPool {
+
+    /**
+     * A pooled bitmap is only handed out for images that need at least this fraction
+     * of it, so small thumbnails don't pin large allocations.
+     */
+    private static final int MAX_SIZE_RATIO = 2;
+
+    private final int mMaxBytes;
+
+    // Allocation size -> bitmaps of that size
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> mBuckets = new TreeMap<>();
+    private int mSize;
+
+    /**
+     * Constructs a new {@link BitmapPool}.
+     *
+     * @param maxBytes total allocation size of the pooled bitmaps
+     */
+    public BitmapPool(int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Offers a bitmap that is no longer displayed or cached anywhere.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT
+                || bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int bytes = bitmap.getAllocationByteCount();
+        if (bytes > mMaxBytes) {
+            return;
+        }
+        ArrayDeque<Bitmap> bucket = mBuckets.get(bytes);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            mBuckets.put(bytes, bucket);
+        }
+        bucket.push(bitmap);
+        mSize += bytes;
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * Removes and returns a bitmap with room for at least the given number of bytes,
+     * or null if none is pooled.
+     */
+    public synchronized Bitmap get(int bytes) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = mBuckets.ceilingEntry(bytes);
+        if (entry == null || entry.getKey() > (long) bytes * MAX_SIZE_RATIO) {
+            return null;
+        }
+        Bitmap bitmap = entry.getValue().pop();
+        if (entry.getValue().isEmpty()) {
+            mBuckets.remove(entry.getKey());
+        }
+        mSize -= entry.getKey();
+        return bitmap;
+    }
+
+    /**
+     * Drops pooled bitmaps, largest first, until the pool holds at most the given number of bytes.
+     */
+    public synchronized void trimToSize(int maxBytes) {
+        while (mSize > maxBytes && !mBuckets.isEmpty()) {
+            Map.Entry<Integer, ArrayDeque<Bitmap>> largest = mBuckets.lastEntry();
+            largest.getValue().pop();
+            if (largest.getValue().isEmpty()) {
+                mBuckets.remove(largest.getKey());
+            }
+            mSize -= largest.getKey();
+        }
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+}
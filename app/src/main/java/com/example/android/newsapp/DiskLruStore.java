@@ -0,0 +1,248 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded least recently used store of byte arrays by string key, such as a URL, kept as
+ * one file per key in a directory. The access order survives restarts through the file
+ * modification time.
+ */
+public final class DiskLruStore {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = DiskLruStore.class.getSimpleName();
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    // File name -> file size, in access order
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private boolean mIndexed;
+    private long mSize;
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    /**
+     * Constructs a new {@link DiskLruStore}. The directory is only read on first use,
+     * so this is safe to call on the main thread.
+     *
+     * @param directory where the files are stored
+     * @param maxBytes  total size of the stored files above which the oldest are evicted
+     */
+    public DiskLruStore(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Indexes the files left in the directory by a previous run.
+     */
+    private synchronized void ensureIndexed() {
+        if (mIndexed) {
+            return;
+        }
+        mIndexed = true;
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Problem creating the store directory " + mDirectory);
+        }
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            // Oldest first, so the most recently used files end up at the tail
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    long diff = a.lastModified() - b.lastModified();
+                    return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+                }
+            });
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                } else {
+                    mEntries.put(file.getName(), file.length());
+                    mSize += file.length();
+                }
+            }
+        }
+        trimToSize();
+    }
+
+    /**
+     * Returns the stored bytes for the given key, or null if they are not stored.
+     */
+    public byte[] get(String key) {
+        String name = fileNameFor(key);
+        synchronized (this) {
+            ensureIndexed();
+            if (mEntries.get(name) == null) {
+                mMissCount++;
+                return null;
+            }
+        }
+        File file = new File(mDirectory, name);
+        byte[] data = null;
+        try {
+            data = readFile(file);
+            file.setLastModified(System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading a stored file", e);
+        }
+        synchronized (this) {
+            if (data == null) {
+                Long size = mEntries.remove(name);
+                if (size != null) {
+                    mSize -= size;
+                }
+                mMissCount++;
+            } else {
+                mHitCount++;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns true if bytes are stored for the given key, without reading them.
+     */
+    public synchronized boolean contains(String key) {
+        ensureIndexed();
+        return mEntries.containsKey(fileNameFor(key));
+    }
+
+    /**
+     * Stores the given bytes for the given key, evicting the least recently used files
+     * if the store grows past its maximum size.
+     */
+    public void put(String key, byte[] data) {
+        String name = fileNameFor(key);
+        ensureIndexed();
+        // Written under a per-thread name first, so concurrent writers never share a file
+        File temp = new File(mDirectory, name + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(temp);
+            outputStream.write(data);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing a stored file", e);
+            temp.delete();
+            return;
+        } finally {
+            closeQuietly(outputStream);
+        }
+        synchronized (this) {
+            if (!temp.renameTo(new File(mDirectory, name))) {
+                temp.delete();
+                return;
+            }
+            Long previous = mEntries.put(name, (long) data.length);
+            if (previous != null) {
+                mSize -= previous;
+            }
+            mSize += data.length;
+            trimToSize();
+        }
+    }
+
+    /**
+     * Deletes every stored file.
+     */
+    public synchronized void clear() {
+        ensureIndexed();
+        for (String name : mEntries.keySet()) {
+            new File(mDirectory, name).delete();
+        }
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    public synchronized long size() {
+        ensureIndexed();
+        return mSize;
+    }
+
+    public synchronized int hitCount() {
+        return mHitCount;
+    }
+
+    public synchronized int missCount() {
+        return mMissCount;
+    }
+
+    public synchronized int evictionCount() {
+        return mEvictionCount;
+    }
+
+    private synchronized void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(mDirectory, eldest.getKey()).delete();
+            mSize -= eldest.getValue();
+            iterator.remove();
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * Turns a key into a file name that is safe on every file system.
+     */
+    private static String fileNameFor(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return String.valueOf(key.hashCode());
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
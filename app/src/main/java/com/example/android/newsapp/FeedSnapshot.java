@@ -0,0 +1,265 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single file snapshot of the feed shown last, together with the encoded thumbnails of its
+ * first news. Reading it back is a memory map and a walk over the bytes, much cheaper than
+ * a database query, so a cold start can show the feed before anything else is ready.
+ * <p>
+ * The file starts with a magic number and a format version. A file of another version,
+ * or a damaged one, is ignored and deleted.
+ */
+public final class FeedSnapshot {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = FeedSnapshot.class.getSimpleName();
+
+    private static final String FILE_NAME = "feed.snapshot";
+
+    /**
+     * "NWSS" in ASCII
+     */
+    private static final int MAGIC = 0x4E575353;
+
+    /**
+     * Bumped on every change of the layout below
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Only the thumbnails of the first news, which are visible at launch, are included
+     */
+    private static final int MAX_THUMBNAILS = 12;
+
+    /**
+     * Thumbnails bigger than this are left out and loaded as usual
+     */
+    private static final int MAX_THUMBNAIL_BYTES = 32 * 1024;
+
+    private static final int NO_VALUE = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static FeedSnapshot sInstance;
+
+    private final File mFile;
+    private final ThumbnailCache mThumbnailCache;
+
+    /**
+     * Writes one snapshot at a time, off the main thread
+     */
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    private FeedSnapshot(File file, ThumbnailCache thumbnailCache) {
+        mFile = file;
+        mThumbnailCache = thumbnailCache;
+    }
+
+    /**
+     * Returns the process wide snapshot, stored in the files directory of the given context.
+     */
+    public static synchronized FeedSnapshot getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new FeedSnapshot(new File(appContext.getFilesDir(), FILE_NAME),
+                    ThumbnailCache.getInstance(appContext));
+        }
+        return sInstance;
+    }
+
+    /**
+     * The news and thumbnails of a snapshot.
+     */
+    private static final class Feed {
+        final String key;
+        final List<News> news;
+        // Thumbnail URL -> encoded thumbnail
+        final Map<String, byte[]> thumbnails;
+
+        Feed(String key, List<News> news, Map<String, byte[]> thumbnails) {
+            this.key = key;
+            this.news = news;
+            this.thumbnails = thumbnails;
+        }
+    }
+
+    /**
+     * Returns the news of the snapshot if it was taken of the given store key, otherwise null.
+     * Its thumbnails are seeded into the {@link ThumbnailCache}, so the first rows need not
+     * wait for the disk. This reads the file, so it must not be called on the main thread.
+     */
+    public List<News> load(String key) {
+        Feed feed = read();
+        if (feed == null || !feed.key.equals(key)) {
+            return null;
+        }
+        for (Map.Entry<String, byte[]> thumbnail : feed.thumbnails.entrySet()) {
+            mThumbnailCache.seedBytes(thumbnail.getKey(), thumbnail.getValue());
+        }
+        return feed.news;
+    }
+
+    /**
+     * Replaces the snapshot with the given news of the given store key, on a background thread.
+     */
+    public void saveAsync(final String key, final List<News> newsList) {
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                save(key, newsList);
+            }
+        });
+    }
+
+    /**
+     * Returns the snapshot on disk, or null if there is none or it can't be read.
+     */
+    private Feed read() {
+        if (!mFile.isFile()) {
+            return null;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "r");
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                Log.w(LOG_TAG, "Discarding a snapshot of another format");
+                mFile.delete();
+                return null;
+            }
+            String key = readString(buffer);
+            int count = buffer.getInt();
+            NewsBatch.Builder newsList = new NewsBatch.Builder();
+            Map<String, byte[]> thumbnails = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String title = readString(buffer);
+                String section = readString(buffer);
+                String author = readString(buffer);
+                long timeInMillis = buffer.getLong();
+                String url = readString(buffer);
+                String thumbnailUrl = readString(buffer);
+                byte[] thumbnail = readBytes(buffer);
+                newsList.add(title, section, author, timeInMillis, url, thumbnailUrl);
+                if (thumbnail != null && thumbnailUrl != null) {
+                    thumbnails.put(thumbnailUrl, thumbnail);
+                }
+            }
+            return new Feed(key, newsList.build(), thumbnails);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Problem reading the feed snapshot", e);
+            mFile.delete();
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the given news of the given store key.
+     * This writes to disk, so it must not be called on the main thread.
+     */
+    public void save(String key, List<News> newsList) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeString(output, key);
+            output.writeInt(newsList.size());
+            for (int i = 0; i < newsList.size(); i++) {
+                News news = newsList.get(i);
+                writeString(output, news.getTitle());
+                writeString(output, news.getSectionName());
+                writeString(output, news.getAuthor());
+                output.writeLong(news.getTimeInMillis());
+                writeString(output, news.getUrl());
+                writeString(output, news.getThumbnailUrl());
+                writeBytes(output, i < MAX_THUMBNAILS ? thumbnailOf(news) : null);
+            }
+            output.close();
+            output = null;
+            // Renaming replaces the old snapshot at once, so a reader never sees half of one
+            if (!temp.renameTo(mFile)) {
+                Log.e(LOG_TAG, "Could not replace the feed snapshot");
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the feed snapshot", e);
+            closeQuietly(output);
+            temp.delete();
+        }
+    }
+
+    private byte[] thumbnailOf(News news) {
+        if (news.getThumbnailUrl() == null) {
+            return null;
+        }
+        byte[] data = mThumbnailCache.getBytes(news.getThumbnailUrl());
+        return data != null && data.length <= MAX_THUMBNAIL_BYTES ? data : null;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        writeBytes(output, value == null ? null : value.getBytes(UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] value) throws IOException {
+        if (value == null) {
+            output.writeInt(NO_VALUE);
+            return;
+        }
+        output.writeInt(value.length);
+        output.write(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = readBytes(buffer);
+        return bytes == null ? null : new String(bytes, UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NO_VALUE) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Bad length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing left to do
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+
+/**
+ * How much to fetch, and how patiently, on the kind of network the device is on.
+ * Unmetered networks get big pages loaded well ahead of the scroll position, with the
+ * thumbnails of the rows about to show. Metered ones get smaller pages, the thumbnails of
+ * the visible rows only, and give up sooner. Slow mobile networks get small pages of text
+ * only, which arrive fast and fall back to the stored news quickly when the network gives up.
+ */
+public enum FetchProfile {
+
+    /** Wi-Fi, ethernet and other unmetered networks */
+    UNMETERED(20, true, true, 15000, 10000, 20, 10),
+    /** Mobile data and other metered networks that are not slow */
+    METERED(8, true, false, 10000, 8000, 5, 3),
+    /** 2G mobile networks, on which every kilobyte shows */
+    SLOW(5, false, false, 5000, 8000, 2, 0);
+
+    /**
+     * Number of news requested per page
+     */
+    public final int pageSize;
+
+    /**
+     * Whether the thumbnails are requested and downloaded
+     */
+    public final boolean thumbnails;
+
+    /**
+     * Whether the thumbnails of the rows about to scroll into view are downloaded ahead,
+     * rather than once the rows show
+     */
+    public final boolean thumbnailPrefetch;
+
+    public final int connectTimeoutMillis;
+    public final int readTimeoutMillis;
+
+    /**
+     * The next page is requested once the last visible row is this close to the end of the list
+     */
+    public final int prefetchDistance;
+
+    /**
+     * Number of top news whose article bodies are downloaded ahead for the reader
+     */
+    public final int articleBodies;
+
+    FetchProfile(int pageSize, boolean thumbnails, boolean thumbnailPrefetch,
+                 int connectTimeoutMillis, int readTimeoutMillis, int prefetchDistance,
+                 int articleBodies) {
+        this.pageSize = pageSize;
+        this.thumbnails = thumbnails;
+        this.thumbnailPrefetch = thumbnailPrefetch;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.prefetchDistance = prefetchDistance;
+        this.articleBodies = articleBodies;
+    }
+
+    /**
+     * Returns the profile of the active network. Without one nothing is fetched anyway,
+     * so {@link #METERED} is returned.
+     */
+    public static FetchProfile forActiveNetwork(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr == null ? null : connMgr.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return METERED;
+        }
+        if (networkInfo.getType() == ConnectivityManager.TYPE_MOBILE
+                && isSlowMobileNetwork(networkInfo.getSubtype())) {
+            return SLOW;
+        }
+        return connMgr.isActiveNetworkMetered() ? METERED : UNMETERED;
+    }
+
+    private static boolean isSlowMobileNetwork(int networkType) {
+        switch (networkType) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
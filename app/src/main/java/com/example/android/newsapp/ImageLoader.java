@@ -0,0 +1,198 @@
+package com.example.android.newsapp;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.widget.ImageView;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/**
+ * Loads thumbnails into list rows in the background. Every bind returns a {@link Request}
+ * that the row keeps, so the load can be cancelled when the row is recycled for another
+ * position and a stale image never lands in a reused view.
+ */
+public final class ImageLoader {
+
+    private final ThumbnailFetcher mFetcher;
+    private final ThumbnailCache mCache;
+    private final BitmapDecoder mDecoder;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Requests queued or downloading, but not displayed yet
+     */
+    private final Set<Request> mPending =
+            Collections.newSetFromMap(new ConcurrentHashMap<Request, Boolean>());
+
+    /**
+     * URLs being prefetched for rows not bound yet
+     */
+    private final Set<String> mPrefetching =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Constructs a new {@link ImageLoader}.
+     *
+     * @param fetcher worker pool the downloads run on
+     * @param cache   cache consulted before any download
+     * @param decoder decodes downloaded thumbnails at the row size
+     */
+    public ImageLoader(ThumbnailFetcher fetcher, ThumbnailCache cache, BitmapDecoder decoder) {
+        mFetcher = fetcher;
+        mCache = cache;
+        mDecoder = decoder;
+    }
+
+    /**
+     * Starts loading the thumbnail at the given URL into the view of the row at the given
+     * position, which ranks the download against the others. Must be called on the main
+     * thread. Returns null if there is nothing to load.
+     */
+    public Request load(String url, ImageView imageView, int position) {
+        if (TextUtils.isEmpty(url)) {
+            return null;
+        }
+        Request request = new Request(url, imageView);
+        // Thumbnails already decoded in memory are set right away, without a thread hop
+        Bitmap cached = mCache.getAndRetainBitmap(url);
+        if (cached != null) {
+            request.display(cached);
+        } else {
+            mPending.add(request);
+            request.mFuture = mFetcher.submit(request, position);
+        }
+        return request;
+    }
+
+    /**
+     * Downloads and decodes the thumbnail at the given URL into the memory cache, for the row
+     * at the given position that is about to scroll into view. Does nothing if it is cached
+     * or already being prefetched. Must be called on the main thread.
+     */
+    public void prefetch(final String url, int position) {
+        if (TextUtils.isEmpty(url) || mCache.getBitmap(url) != null || !mPrefetching.add(url)) {
+            return;
+        }
+        mFetcher.submit(new ThumbnailFetcher.CancellableWork() {
+            @Override
+            public void run() {
+                try {
+                    QueryUtils.fetchingImage(url, mCache, mDecoder);
+                } finally {
+                    mPrefetching.remove(url);
+                }
+            }
+
+            @Override
+            public void onCancelled() {
+                // Dropped before it ran, so the row may prefetch it again later
+                mPrefetching.remove(url);
+            }
+        }, position);
+    }
+
+    /**
+     * Holds back the downloads and decodes that have not started while paused.
+     */
+    public void setPaused(boolean paused) {
+        mFetcher.setPaused(paused);
+    }
+
+    /**
+     * Tells which rows are on screen, so their thumbnails are downloaded first.
+     */
+    public void setVisibleRange(int first, int last) {
+        mFetcher.setVisibleRange(first, last);
+    }
+
+    /**
+     * Cancels every load that has not reached its view yet, so work for rows that are
+     * about to be replaced stops competing with the new ones. Must be called on the main thread.
+     */
+    public void cancelPending() {
+        for (Request request : mPending) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * A single thumbnail load bound to a single view.
+     */
+    public final class Request implements ThumbnailFetcher.CancellableWork {
+        private final String mUrl;
+        private final ImageView mImageView;
+        private volatile boolean mCancelled;
+        private Future<?> mFuture;
+        // Bitmap currently shown by this request, only touched on the main thread
+        private Bitmap mDisplayed;
+
+        private Request(String url, ImageView imageView) {
+            mUrl = url;
+            mImageView = imageView;
+        }
+
+        /**
+         * This is on a background thread.
+         */
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            // Retained as it is looked up or put, so the bitmap is not pooled while in flight
+            final Bitmap bitmap = QueryUtils.fetchingRetainedImage(mUrl, mCache, mDecoder);
+            if (bitmap == null) {
+                mPending.remove(this);
+                return;
+            }
+            if (mCancelled) {
+                mCache.release(bitmap);
+                return;
+            }
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // Checked again on the main thread, where cancel() is called
+                    if (mCancelled) {
+                        mCache.release(bitmap);
+                    } else {
+                        display(bitmap);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onCancelled() {
+            // Dropped or cancelled before it ran, so it will never display or remove itself
+            mPending.remove(this);
+        }
+
+        private void display(Bitmap bitmap) {
+            mPending.remove(this);
+            mDisplayed = bitmap;
+            mImageView.setImageBitmap(bitmap);
+        }
+
+        /**
+         * Drops the load and gives up the displayed bitmap. Must be called on the main thread,
+         * after the view has stopped showing the bitmap.
+         */
+        public void cancel() {
+            mCancelled = true;
+            mPending.remove(this);
+            if (mFuture != null) {
+                mFuture.cancel(true);
+            }
+            if (mDisplayed != null) {
+                mCache.release(mDisplayed);
+                mDisplayed = null;
+            }
+        }
+    }
+}
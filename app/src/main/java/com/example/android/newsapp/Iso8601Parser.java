@@ -0,0 +1,121 @@
+package com.example.android.newsapp;
+
+/**
+ * Parses the ISO-8601 timestamps of the guardian API, such as "2017-10-29T06:00:20Z",
+ * straight into milliseconds since the epoch. Unlike {@link java.text.SimpleDateFormat} it
+ * allocates nothing and is safe to use from any thread.
+ * <p>
+ * Fractional seconds and "+hh:mm" / "-hh:mm" offsets are accepted as well as "Z",
+ * a timestamp without any offset is taken as UTC.
+ */
+public final class Iso8601Parser {
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link Iso8601Parser} object.
+     */
+    private Iso8601Parser() {
+    }
+
+    /**
+     * Returns the given timestamp in milliseconds since the epoch,
+     * or {@link News#UNKNOWN_TIME} if it is null or malformed.
+     */
+    public static long parse(String timestamp) {
+        // yyyy-MM-ddTHH:mm:ss is the shortest form accepted
+        if (timestamp == null || timestamp.length() < 19
+                || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-'
+                || timestamp.charAt(10) != 'T'
+                || timestamp.charAt(13) != ':' || timestamp.charAt(16) != ':') {
+            return News.UNKNOWN_TIME;
+        }
+        int year = digits(timestamp, 0, 4);
+        int month = digits(timestamp, 5, 2);
+        int day = digits(timestamp, 8, 2);
+        int hour = digits(timestamp, 11, 2);
+        int minute = digits(timestamp, 14, 2);
+        int second = digits(timestamp, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return News.UNKNOWN_TIME;
+        }
+
+        int index = 19;
+        int millis = 0;
+        if (index < timestamp.length() && timestamp.charAt(index) == '.') {
+            // Keep the first three fraction digits and skip the rest
+            index++;
+            int scale = 100;
+            while (index < timestamp.length() && isDigit(timestamp.charAt(index))) {
+                millis += (timestamp.charAt(index) - '0') * scale;
+                scale /= 10;
+                index++;
+            }
+        }
+
+        long offsetMillis = 0;
+        if (index < timestamp.length()) {
+            char sign = timestamp.charAt(index);
+            if (sign == 'Z' && index + 1 == timestamp.length()) {
+                offsetMillis = 0;
+            } else if ((sign == '+' || sign == '-') && index + 6 == timestamp.length()
+                    && timestamp.charAt(index + 3) == ':') {
+                int offsetHours = digits(timestamp, index + 1, 2);
+                int offsetMinutes = digits(timestamp, index + 4, 2);
+                if (offsetHours < 0 || offsetMinutes < 0) {
+                    return News.UNKNOWN_TIME;
+                }
+                offsetMillis = offsetHours * MILLIS_PER_HOUR + offsetMinutes * MILLIS_PER_MINUTE;
+                if (sign == '-') {
+                    offsetMillis = -offsetMillis;
+                }
+            } else {
+                return News.UNKNOWN_TIME;
+            }
+        }
+
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + hour * MILLIS_PER_HOUR
+                + minute * MILLIS_PER_MINUTE
+                + second * MILLIS_PER_SECOND
+                + millis
+                - offsetMillis;
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and the given date of the
+     * proleptic Gregorian calendar.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        // Count years from March, so the leap day is the last day of the year
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns the number made of the given decimal digits, or -1 if one of them is not a digit.
+     */
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
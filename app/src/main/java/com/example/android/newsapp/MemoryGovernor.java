@@ -0,0 +1,234 @@
+package com.example.android.newsapp;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+/**
+ * Keeps the heap held by thumbnails and parsed feeds within a budget set from the memory
+ * class of the device, and gives it back as the system runs short of memory.
+ * <p>
+ * The budget is a quarter of the heap the app is given: half of it for the decoded
+ * thumbnails, which the {@link ThumbnailCache} is sized to, and an eighth for the news of
+ * the feeds kept for conditional requests. {@link #checkBudget()} brings them back within it
+ * after a load. As the trim levels of {@link ComponentCallbacks2} rise, the caches are evicted
+ * in stages, see {@link Pressure}.
+ */
+public final class MemoryGovernor implements ComponentCallbacks2 {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = MemoryGovernor.class.getSimpleName();
+
+    /**
+     * Fraction of the app heap the caches may hold
+     */
+    private static final int HEAP_BUDGET_DIVISOR = 4;
+
+    /**
+     * Fraction of the budget given to decoded thumbnails
+     */
+    private static final int THUMBNAIL_BUDGET_DIVISOR = 2;
+
+    /**
+     * Fraction of the budget given to parsed feeds
+     */
+    private static final int FEED_BUDGET_DIVISOR = 8;
+
+    private static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    /**
+     * How hard the system is pressed for memory, and what is given back at each stage.
+     */
+    public enum Pressure {
+        /**
+         * Nothing is given back.
+         */
+        NONE,
+        /**
+         * Half of the decoded thumbnails and of the pool, and the seeded thumbnails.
+         */
+        MODERATE,
+        /**
+         * Three quarters of the decoded thumbnails, the whole pool, the seeded thumbnails
+         * and the cached feeds.
+         */
+        LOW,
+        /**
+         * Everything that can be loaded again.
+         */
+        CRITICAL;
+
+        /**
+         * Returns the pressure told by a level of {@link ComponentCallbacks2#onTrimMemory(int)}.
+         * Once the app is in the background, the levels tell how soon it will be killed.
+         */
+        public static Pressure forTrimLevel(int level) {
+            if (level >= TRIM_MEMORY_COMPLETE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+                return CRITICAL;
+            }
+            if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_LOW) {
+                return LOW;
+            }
+            if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+                return MODERATE;
+            }
+            return NONE;
+        }
+    }
+
+    private static MemoryGovernor sInstance;
+
+    private final Context mContext;
+
+    private final int mBudgetBytes;
+
+    private MemoryGovernor(Context context) {
+        mContext = context;
+        long heapBytes = Runtime.getRuntime().maxMemory();
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null) {
+            // A large heap is not asked for, but the runtime could still allow more
+            heapBytes = Math.min(heapBytes,
+                    (long) activityManager.getMemoryClass() * BYTES_PER_MEGABYTE);
+        }
+        mBudgetBytes = (int) (heapBytes / HEAP_BUDGET_DIVISOR);
+    }
+
+    /**
+     * Returns the process wide governor, registered for the memory callbacks of the app.
+     */
+    public static synchronized MemoryGovernor getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new MemoryGovernor(appContext);
+            appContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the bytes the caches may hold together.
+     */
+    public int getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    /**
+     * Returns the bytes the decoded thumbnails may hold.
+     */
+    public int getThumbnailBudgetBytes() {
+        return mBudgetBytes / THUMBNAIL_BUDGET_DIVISOR;
+    }
+
+    /**
+     * Returns the bytes the parsed feeds may hold.
+     */
+    public int getFeedBudgetBytes() {
+        return mBudgetBytes / FEED_BUDGET_DIVISOR;
+    }
+
+    /**
+     * Returns what the caches hold right now.
+     */
+    public Usage getUsage() {
+        ThumbnailCache cache = ThumbnailCache.getInstance(mContext);
+        return new Usage(cache.memorySize(), cache.getBitmapPool().size(), cache.seededSize(),
+                QueryUtils.cachedFeedsSizeInBytes(), mBudgetBytes);
+    }
+
+    /**
+     * Evicts the least recently used feeds beyond their budget, and gives back memory as
+     * under moderate pressure if the caches together hold more than the budget.
+     */
+    public void checkBudget() {
+        QueryUtils.trimCachedFeeds(getFeedBudgetBytes());
+        Usage usage = getUsage();
+        if (usage.getTotalBytes() > mBudgetBytes) {
+            relieve(Pressure.MODERATE);
+        } else if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            Log.d(LOG_TAG, usage.toString());
+        }
+    }
+
+    /**
+     * Gives back the memory of the given stage of pressure.
+     */
+    public void relieve(Pressure pressure) {
+        if (pressure == Pressure.NONE) {
+            return;
+        }
+        ThumbnailCache cache = ThumbnailCache.getInstance(mContext);
+        BitmapPool pool = cache.getBitmapPool();
+        // Evicted thumbnails go to the pool, so it is trimmed after them
+        switch (pressure) {
+            case MODERATE:
+                cache.trimMemory(cache.memoryMaxSize() / 2);
+                cache.clearSeededBytes();
+                pool.trimToSize(pool.size() / 2);
+                break;
+            case LOW:
+                cache.trimMemory(cache.memoryMaxSize() / 4);
+                cache.clearSeededBytes();
+                pool.trimToSize(0);
+                QueryUtils.trimCachedFeeds(0);
+                break;
+            default:
+                cache.trimMemory(0);
+                cache.clearSeededBytes();
+                pool.trimToSize(0);
+                QueryUtils.trimCachedFeeds(0);
+                break;
+        }
+        Log.i(LOG_TAG, "Relieved " + pressure + " pressure, now " + getUsage());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        relieve(Pressure.forTrimLevel(level));
+    }
+
+    @Override
+    public void onLowMemory() {
+        relieve(Pressure.CRITICAL);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Bytes held by each cache at one point in time.
+     */
+    public static final class Usage {
+        public final long thumbnailBytes;
+        public final long pooledBytes;
+        public final long seededBytes;
+        public final long feedBytes;
+        public final long budgetBytes;
+
+        Usage(long thumbnailBytes, long pooledBytes, long seededBytes, long feedBytes,
+              long budgetBytes) {
+            this.thumbnailBytes = thumbnailBytes;
+            this.pooledBytes = pooledBytes;
+            this.seededBytes = seededBytes;
+            this.feedBytes = feedBytes;
+            this.budgetBytes = budgetBytes;
+        }
+
+        public long getTotalBytes() {
+            return thumbnailBytes + pooledBytes + seededBytes + feedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Usage{total=" + getTotalBytes() + "/" + budgetBytes
+                    + " bytes, thumbnails=" + thumbnailBytes + ", pool=" + pooledBytes
+                    + ", seeded=" + seededBytes + ", feeds=" + feedBytes + "}";
+        }
+    }
+}
@@ -1,29 +1,31 @@
 
 package com.example.android.newsapp;
 
-import android.graphics.Bitmap;
-import android.widget.ImageView;
-import android.widget.TextView;
-
-import butterknife.BindView;
+import android.text.TextUtils;
 
 /**
  * An {@link News} object contains information related to a single News.
  */
 public class News {
+
+    /**
+     * Publication time of news whose date is missing or could not be parsed
+     */
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
     private String mTitle;
     private String mAuthor;
     private String mSectionName;
-    private String mDate;
-    private Bitmap thumbnail;
+    private long mTimeInMillis;
+    private String mThumbnailUrl;
     private String mUrl;
 
-    public News(String title, String sectionName, String author, String date, String url, Bitmap thumbnail) {
+    public News(String title, String sectionName, String author, long timeInMillis, String url, String thumbnailUrl) {
         mTitle = title;
         mAuthor = author;
         mSectionName = sectionName;
-        this.thumbnail = thumbnail;
-        mDate = date;
+        mThumbnailUrl = thumbnailUrl;
+        mTimeInMillis = timeInMillis;
         mUrl = url;
     }
 
@@ -49,17 +51,18 @@ public class News {
     }
 
     /**
-     * Returns the date of the news.
+     * Returns the URL of the thumbnail of the news.
      */
-    public Bitmap getThumbnail() {
-        return thumbnail;
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
     }
 
     /**
-     * Returns the date of the news.
+     * Returns the publication time of the news in milliseconds since the epoch,
+     * or {@link #UNKNOWN_TIME}.
      */
-    public String getDate() {
-        return mDate;
+    public long getTimeInMillis() {
+        return mTimeInMillis;
     }
 
     /**
@@ -68,4 +71,29 @@ public class News {
     public String getUrl() {
         return mUrl;
     }
-}
\ No newline at end of file
+
+    /**
+     * Two news are equal when every field shown in the list is equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof News)) {
+            return false;
+        }
+        News other = (News) o;
+        return mTimeInMillis == other.mTimeInMillis
+                && TextUtils.equals(mUrl, other.mUrl)
+                && TextUtils.equals(mTitle, other.mTitle)
+                && TextUtils.equals(mAuthor, other.mAuthor)
+                && TextUtils.equals(mSectionName, other.mSectionName)
+                && TextUtils.equals(mThumbnailUrl, other.mThumbnailUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return mUrl == null ? 0 : mUrl.hashCode();
+    }
+}
@@ -11,18 +11,20 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
 import android.widget.EditText;
 import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import butterknife.BindView;
@@ -30,22 +32,35 @@ import butterknife.ButterKnife;
 
 public class NewsActivity extends AppCompatActivity
         implements LoaderCallbacks<List<News>>,
-        SharedPreferences.OnSharedPreferenceChangeListener {
+        SharedPreferences.OnSharedPreferenceChangeListener,
+        NewsAdapter.OnNewsClickListener {
 
     @BindView(R.id.theguardianCover) ImageView coverImage;
-    @BindView(R.id.list) ListView mainListView;
+    @BindView(R.id.list) RecyclerView mainListView;
     @BindView(R.id.empty_view) TextView mEmptyStateTextView;
     @BindView(R.id.loading_indicator) View loadingIndicator;
+    @BindView(R.id.filter) EditText mFilterEditText;
     /**
      * Adapter for the list of news
      */
     private NewsAdapter mAdapter;
 
     /**
-     * URL for news data from the GUARDIAN_URL dataset
+     * News last delivered by the loader, shown whenever the filter box is empty
      */
-    private static final String GUARDIAN_URL =
-            "https://content.guardianapis.com/search?";
+    private List<News> mNews;
+
+    /**
+     * The next page is requested once the last visible row is this close to the end of
+     * the list, so it usually arrives before the user gets there. Set by the fetch profile.
+     */
+    private int mPrefetchDistance = FetchProfile.METERED.prefetchDistance;
+
+    /**
+     * Profile of the network the current query was made on, which tells how many article
+     * bodies to download ahead
+     */
+    private FetchProfile mProfile = FetchProfile.METERED;
 
     /**
      * Constant value for the news loader ID. We can choose any integer.
@@ -53,6 +68,20 @@ public class NewsActivity extends AppCompatActivity
      */
     private static final int NEWS_LOADER_ID = 1;
 
+    /**
+     * Settings changes closer together than this are folded into one reload
+     */
+    private static final long RELOAD_DEBOUNCE_MILLIS = 500;
+
+    private final Handler mHandler = new Handler();
+
+    private final Runnable mReloadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            reload();
+        }
+    };
+
     /**
      * TextView that is displayed when the list is empty
      */
@@ -75,109 +104,155 @@ public class NewsActivity extends AppCompatActivity
             }
         });
 
-        // Find a reference to the {@link ListView} in the layout
-
-        mainListView.setEmptyView(mEmptyStateTextView);
+        // Create a new adapter that starts with an empty list of news, and opens the
+        // clicked news in the reader
+        mAdapter = new NewsAdapter(this, this);
 
-        // Create a new adapter that takes an empty list of news as input
-        mAdapter = new NewsAdapter(this, new ArrayList<News>());
-
-        // Set the adapter on the {@link ListView}
+        // Set the adapter on the {@link RecyclerView}
         // so the list can be populated in the user interface
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        mainListView.setLayoutManager(layoutManager);
+        mainListView.setHasFixedSize(true);
         mainListView.setAdapter(mAdapter);
 
+        // Load the thumbnails by how the list is scrolled
+        mainListView.addOnScrollListener(new ThumbnailScrollListener(layoutManager, mAdapter));
+
+        // Load the next page ahead of the scroll position
+        mainListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (isFiltering()) {
+                    // The filtered news come from the index, not from the pages of the query
+                    return;
+                }
+                int totalItemCount = layoutManager.getItemCount();
+                if (totalItemCount > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= totalItemCount - 1 - mPrefetchDistance) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // Narrow down the news already loaded or stored as the filter text changes
+        mFilterEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                showNews();
+            }
+        });
+
         // Obtain a reference to the SharedPreferences file for this app
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         // And register to be notified of preference changes
         // So we know when the user has adjusted the query settings
         prefs.registerOnSharedPreferenceChangeListener(this);
 
-        // Set an item click listener on the ListView, which sends an intent to a web browser
-        // to open a website with more information about the selected news.
-        mainListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                // Find the current news that was clicked on
-                News currentNews = mAdapter.getItem(position);
+        // Get a reference to the LoaderManager, in order to interact with loaders.
+        LoaderManager loaderManager = getLoaderManager();
 
-                // Convert the String URL into a URI object (to pass into the Intent constructor)
-                Uri newsUri = Uri.parse(currentNews.getUrl());
+        // Initialize the loader. Pass in the int ID constant defined above and pass in null for
+        // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
+        // because this activity implements the LoaderCallbacks interface).
+        // The loader serves stored news first, so it is started even without a connection.
+        loaderManager.initLoader(NEWS_LOADER_ID, null, this);
 
-                // Create a new intent to view the news URI
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsUri);
+        // Keep the stored news fresh in the background, so the next launch shows recent news
+        NewsPrefetch.schedule(this);
+    }
 
-                if (websiteIntent.resolveActivity(getPackageManager()) != null) {
-                    // Send the intent to launch a new activity
-                    startActivity(websiteIntent);
-                }
-            }
-        });
+    /**
+     * Opens the clicked news in the in-app reader, which reads its prefetched body from disk.
+     */
+    @Override
+    public void onNewsClick(News currentNews) {
+        if (currentNews.getUrl() != null) {
+            startActivity(ArticleActivity.newIntent(this, currentNews));
+        }
+    }
+
+    /**
+     * Asks the news loader for the next page of the current query.
+     */
+    private void loadNextPage() {
+        Loader<List<News>> loader = getLoaderManager().getLoader(NEWS_LOADER_ID);
+        if (loader instanceof NewsLoader) {
+            ((NewsLoader) loader).loadNextPage();
+        }
+    }
 
+    /**
+     * Returns true if there is a network connection.
+     */
+    private boolean isConnected() {
         // Get a reference to the ConnectivityManager to check state of network connectivity
         ConnectivityManager connMgr = (ConnectivityManager)
                 getSystemService(Context.CONNECTIVITY_SERVICE);
 
         // Get details on the currently active default data network
         NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
-
-        // If there is a network connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
-
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface).
-            loaderManager.initLoader(NEWS_LOADER_ID, null, this);
-        } else {
-            // Otherwise, display error
-            // First, hide loading indicator so error message will be visible
-            loadingIndicator.setVisibility(View.GONE);
-
-            // Update empty state with no connection error message
-            mEmptyStateTextView.setText(R.string.no_internet_connection);
-        }
+        return networkInfo != null && networkInfo.isConnected();
     }
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
         if (key.equals(getString(R.string.settings_page_key)) ||
                 key.equals(getString(R.string.settings_interest_key))) {
-            // Clear the ListView as a new query will be kicked off
-            mAdapter.clear();
-
-            // Hide the empty state text view as the loading indicator will be displayed
-            mEmptyStateTextView.setVisibility(View.GONE);
-
-            // Show the loading indicator while new data is being fetched
-            loadingIndicator.setVisibility(View.VISIBLE);
-
-            // Restart the loader to requery the USGS as the query settings have been updated
-            getLoaderManager().restartLoader(NEWS_LOADER_ID, null, this);
+            // Coalesce a burst of changes into a single reload once they settle
+            mHandler.removeCallbacks(mReloadRunnable);
+            mHandler.postDelayed(mReloadRunnable, RELOAD_DEBOUNCE_MILLIS);
         }
     }
 
-    @Override
-    public Loader<List<News>> onCreateLoader(int i, Bundle bundle) {
+    /**
+     * Starts a new query with the current settings.
+     */
+    private void reload() {
+        // Drop the thumbnails still on their way to the rows being replaced
+        mAdapter.cancelPendingThumbnails();
+
+        // Clear the list as a new query will be kicked off
+        mNews = null;
+        mAdapter.setNews(null);
 
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        String pageNumber = sharedPrefs.getString(
-                getString(R.string.settings_page_key),
-                getString(R.string.settings_page_default));
+        // Hide the list and the empty state text view as the loading indicator will be displayed
+        mainListView.setVisibility(View.GONE);
+        mEmptyStateTextView.setVisibility(View.GONE);
 
-        String yourInterested = sharedPrefs.getString(
-                getString(R.string.settings_interest_key),
-                getString(R.string.settings_page_default));
+        // Show the loading indicator while new data is being fetched
+        loadingIndicator.setVisibility(View.VISIBLE);
 
-        Uri baseUri = Uri.parse(GUARDIAN_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-        uriBuilder.appendQueryParameter(getString(R.string.showfields), getString(R.string.thumbnail));
-        uriBuilder.appendQueryParameter(getString(R.string.pageSize), pageNumber);
-        uriBuilder.appendQueryParameter(getString(R.string.q), yourInterested);
-        uriBuilder.appendQueryParameter(getString(R.string.showTags), getString(R.string.contributor));
-        uriBuilder.appendQueryParameter(getString(R.string.apiKey), getString(R.string.apiKeyDecrypt));
+        // Restart the loader to requery the guardian as the query settings have been updated.
+        // The load of the previous query, if still running, is cancelled with its request.
+        getLoaderManager().restartLoader(NEWS_LOADER_ID, null, this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mHandler.removeCallbacks(mReloadRunnable);
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .unregisterOnSharedPreferenceChangeListener(this);
+    }
 
-        return new NewsLoader(this, uriBuilder.toString());
+    @Override
+    public Loader<List<News>> onCreateLoader(int i, Bundle bundle) {
+        // What to fetch depends on the network the query is made on
+        NewsQuery query = NewsQuery.fromPreferences(this);
+        FetchProfile profile = query.getProfile();
+        mPrefetchDistance = profile.prefetchDistance;
+        mProfile = profile;
+        mAdapter.setThumbnailsEnabled(profile.thumbnails);
+        mAdapter.setThumbnailPrefetchEnabled(profile.thumbnailPrefetch);
+        return new NewsLoader(this, query);
     }
 
     @Override
@@ -185,24 +260,59 @@ public class NewsActivity extends AppCompatActivity
         // Hide loading indicator because the data has been loaded
         loadingIndicator.setVisibility(View.GONE);
 
-        // Set empty state text to display "No news found."
-        mEmptyStateTextView.setText(R.string.no_news);
+        // Set empty state text to display "No news found.", or the connection error
+        // if nothing could be loaded while offline
+        boolean connected = isConnected();
+        if (connected) {
+            mEmptyStateTextView.setText(R.string.no_news);
+        } else {
+            mEmptyStateTextView.setText(R.string.no_internet_connection);
+        }
+
+        // Stored news are delivered first and the fresh ones later. The new list is diffed
+        // against the one shown in the background, and only the rows that differ are rebound.
+        List<News> shown = mNews;
+        mNews = news;
+        showNews();
+
+        // Download the bodies of the top news, so the reader opens them from disk. Not for
+        // the same list delivered again on restart, nor offline, where every request would fail.
+        if (connected && news != shown) {
+            ArticleStore.getInstance(this).prefetchAsync(news, mProfile);
+        }
+    }
 
-        // Clear the adapter of previous news data
-        //mAdapter.clear();
+    /**
+     * Returns true while the filter box has text in it.
+     */
+    private boolean isFiltering() {
+        return mFilterEditText.getText().toString().trim().length() > 0;
+    }
 
-        // If there is a valid list of {@link News}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update.
-        if (news != null && !news.isEmpty()) {
-            mAdapter.addAll(news);
-            //updateUi(news);
+    /**
+     * Shows the delivered news, or the news matching the filter box when it has text.
+     * The loader indexes every news it loads, so filtering needs no network.
+     */
+    private void showNews() {
+        List<News> news = mNews;
+        if (isFiltering()) {
+            news = NewsIndex.getInstance().search(mFilterEditText.getText().toString());
         }
+        // A RecyclerView has no empty view of its own, and it fills the screen, so it is
+        // hidden for the empty state text view and the loading indicator to show
+        boolean empty = news == null || news.isEmpty();
+        mainListView.setVisibility(empty ? View.GONE : View.VISIBLE);
+        mEmptyStateTextView.setVisibility(empty && loadingIndicator.getVisibility() != View.VISIBLE
+                ? View.VISIBLE : View.GONE);
+        mAdapter.setNews(news);
     }
 
     @Override
     public void onLoaderReset(Loader<List<News>> loader) {
         // Loader reset, so we can clear out our existing data.
-        mAdapter.clear();
+        mNews = null;
+        mAdapter.setNews(null);
+        mainListView.setVisibility(View.GONE);
     }
 
     @Override
@@ -1,25 +1,269 @@
 package com.example.android.newsapp;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+import android.util.LongSparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
-public class NewsAdapter extends ArrayAdapter<News> {
-    public NewsAdapter(Context context, List<News> News) {
-        super(context, 0, News);
+/**
+ * {@link RecyclerView} adapter of the news. A new list is diffed against the one shown on a
+ * background thread, so a refresh only rebinds the rows that were inserted, moved or changed.
+ * <p>
+ * The news are held as a {@link NewsBatch} and read column by column, so neither binding,
+ * nor the stable ids, nor the diff create a {@link News} per row.
+ */
+public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.ViewHolder> {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = NewsAdapter.class.getSimpleName();
+
+    // Diffs one list at a time, the newest one wins
+    private static final Executor sDiffExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, LOG_TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Receives the clicks on the rows.
+     */
+    public interface OnNewsClickListener {
+        void onNewsClick(News news);
+    }
+
+    private final Context mContext;
+
+    private final OnNewsClickListener mClickListener;
+
+    /**
+     * Loads the thumbnails of the visible rows
+     */
+    private final ImageLoader mImageLoader;
+
+    /**
+     * Formats publication times for display. Only used on the main thread.
+     */
+    private final SimpleDateFormat mDateFormat =
+            new SimpleDateFormat("dd-MM-yyyy" + "\n" + "HH:mm:ss", Locale.getDefault());
+
+    /**
+     * Publication time -> formatted date, filled lazily as rows are bound
+     */
+    private final LongSparseArray<String> mFormattedDates = new LongSparseArray<>();
+
+    /**
+     * False on networks where thumbnails are not worth their bytes, showing text only
+     */
+    private boolean mThumbnailsEnabled = true;
+
+    /**
+     * False on networks where only the thumbnails of the rows shown are worth their bytes
+     */
+    private boolean mThumbnailPrefetchEnabled = true;
+
+    /**
+     * Web URL -> stable id of its rows. Only used on the main thread.
+     */
+    private final Map<String, Long> mStableIds = new HashMap<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * News shown, and the number of the list submitted last, which a diff must still match
+     * when it is done. Only used on the main thread.
+     */
+    private NewsBatch mNews = NewsBatch.empty();
+    private int mSubmitted;
+
+    public NewsAdapter(Context context, OnNewsClickListener clickListener) {
+        mContext = context;
+        mClickListener = clickListener;
+        setHasStableIds(true);
+        ThumbnailCache cache = ThumbnailCache.getInstance(context);
+        Resources res = context.getResources();
+        boolean lowRamDevice = isLowRamDevice(context);
+        BitmapDecoder decoder = new BitmapDecoder(
+                res.getDimensionPixelSize(R.dimen.thumbnail_width),
+                res.getDimensionPixelSize(R.dimen.thumbnail_height),
+                lowRamDevice, cache.getBitmapPool());
+        mImageLoader = new ImageLoader(
+                ThumbnailFetcher.getInstance(lowRamDevice), cache, decoder);
+    }
+
+    /**
+     * Replaces the news shown. The list must not be modified afterwards, as it is diffed
+     * against the one shown on a background thread. Passing null clears the list at once,
+     * and with it the ids of the news shown so far, as it does before a new query.
+     */
+    public void setNews(final List<News> news) {
+        if (news == mNews) {
+            return;
+        }
+        final int submitted = ++mSubmitted;
+        if (news == null) {
+            int removed = mNews.size();
+            mNews = NewsBatch.empty();
+            notifyItemRangeRemoved(0, removed);
+            // No row is left to keep its id, so the next query starts afresh
+            mStableIds.clear();
+            return;
+        }
+        if (mNews.isEmpty()) {
+            // Nothing to diff against
+            mNews = NewsBatch.copyOf(news);
+            notifyItemRangeInserted(0, mNews.size());
+            return;
+        }
+        final NewsBatch oldNews = mNews;
+        sDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final NewsBatch newNews = NewsBatch.copyOf(news);
+                final DiffUtil.DiffResult diff =
+                        DiffUtil.calculateDiff(new NewsDiff(oldNews, newNews));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A list submitted in the meantime makes this one stale
+                        if (submitted == mSubmitted) {
+                            mNews = newNews;
+                            diff.dispatchUpdatesTo(NewsAdapter.this);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Turns loading thumbnails on or off for the rows bound from now on.
+     */
+    public void setThumbnailsEnabled(boolean enabled) {
+        mThumbnailsEnabled = enabled;
+    }
+
+    /**
+     * Turns loading the thumbnails of the rows about to scroll into view on or off.
+     */
+    public void setThumbnailPrefetchEnabled(boolean enabled) {
+        mThumbnailPrefetchEnabled = enabled;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mNews.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = idKey(mNews, position);
+        Long id = mStableIds.get(key);
+        if (id == null) {
+            id = (long) mStableIds.size();
+            mStableIds.put(key, id);
+        }
+        return id;
+    }
+
+    // The web URL identifies an article, the title stands in for the rare one without it
+    private static String idKey(NewsBatch news, int position) {
+        String url = news.getUrl(position);
+        return url != null ? url : "title:" + news.getTitle(position);
+    }
+
+    /**
+     * Returns the date shown for the given publication time, formatting it on first use.
+     */
+    private String formatDate(long timeInMillis) {
+        if (timeInMillis == News.UNKNOWN_TIME) {
+            return null;
+        }
+        String formatted = mFormattedDates.get(timeInMillis);
+        if (formatted == null) {
+            formatted = "Date:" + "\n" + mDateFormat.format(new Date(timeInMillis));
+            mFormattedDates.put(timeInMillis, formatted);
+        }
+        return formatted;
+    }
+
+    /**
+     * Tells which rows are on screen, both inclusive, so their thumbnails jump the queue
+     * and those of rows scrolled far away are dropped. Called as the list scrolls.
+     */
+    public void setVisibleRange(int first, int last) {
+        mImageLoader.setVisibleRange(first, last);
+    }
+
+    /**
+     * Loads the thumbnails of the rows from the first to the last position given, both
+     * inclusive, ahead of their binding. Positions out of the list are skipped.
+     */
+    public void prefetchThumbnails(int first, int last) {
+        if (!mThumbnailsEnabled || !mThumbnailPrefetchEnabled) {
+            return;
+        }
+        for (int position = Math.max(first, 0);
+             position <= last && position < getItemCount(); position++) {
+            mImageLoader.prefetch(mNews.getThumbnailUrl(position), position);
+        }
+    }
+
+    /**
+     * Holds back the thumbnail loads that have not started while paused.
+     */
+    public void setThumbnailsPaused(boolean paused) {
+        mImageLoader.setPaused(paused);
+    }
+
+    /**
+     * Cancels the thumbnail loads that have not reached their rows yet.
+     */
+    public void cancelPendingThumbnails() {
+        mImageLoader.cancelPending();
+    }
+
+    // Low RAM devices get RGB_565 thumbnails, half the size of ARGB_8888
+    private static boolean isLowRamDevice(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return false;
+        }
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return activityManager != null && activityManager.isLowRamDevice();
     }
 
     // Create class ViewHolder for efficient memory usage
-    static class ViewHolder {
+    static class ViewHolder extends RecyclerView.ViewHolder {
         @BindView(R.id.title)
         TextView mTitleTextView;
         @BindView(R.id.author)
@@ -31,39 +275,104 @@ public class NewsAdapter extends ArrayAdapter<News> {
         @BindView(R.id.section)
         TextView mSectionTextView;
 
+        // Thumbnail load currently bound to this row, if any
+        ImageLoader.Request mThumbnailRequest;
+
         public ViewHolder(View view) {
+            super(view);
             ButterKnife.bind(this, view);
         }
+
+        // Cancel whatever the recycled row was loading before starting the new thumbnail
+        void bindThumbnail(ImageLoader imageLoader, String thumbnailUrl, int position) {
+            unbindThumbnail();
+            mThumbnailRequest = imageLoader.load(thumbnailUrl, mThumbnailImageView, position);
+        }
+
+        void unbindThumbnail() {
+            mThumbnailImageView.setImageDrawable(null);
+            if (mThumbnailRequest != null) {
+                mThumbnailRequest.cancel();
+                mThumbnailRequest = null;
+            }
+        }
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(mContext).inflate(
+                R.layout.news_list_item, parent, false);
+        final ViewHolder holder = new ViewHolder(itemView);
+        itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    mClickListener.onNewsClick(mNews.get(position));
+                }
+            }
+        });
+        return holder;
     }
 
     /**
-     * Returns a list item view that displays information about the news at the given position
-     * in the list of news.
+     * Displays the information about the news at the given position in the list of news.
      */
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        ViewHolder holder;
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        // Read the news at the given position straight from the columns of the list of news
+        NewsBatch news = mNews;
+        holder.bindThumbnail(mImageLoader,
+                mThumbnailsEnabled ? news.getThumbnailUrl(position) : null, position);
+        // Display the INFO of the current news in that all TextView
+        holder.mTitleTextView.setText(news.getTitle(position));
+        holder.mAuthorTextView.setText(news.getAuthor(position));
+        holder.mDataTextView.setText(formatDate(news.getTimeInMillis(position)));
+        holder.mSectionTextView.setText(news.getSectionName(position));
+    }
 
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.news_list_item, parent, false);
-            holder = new ViewHolder(convertView);
-            convertView.setTag(holder);
-        } else {
-            holder = (ViewHolder) convertView.getTag();
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        // The row scrolled away, so its thumbnail is no longer needed
+        holder.unbindThumbnail();
+    }
+
+    /**
+     * Two news are the same article when they have the same web URL,
+     * and look the same when every field shown is equal.
+     */
+    private static final class NewsDiff extends DiffUtil.Callback {
+        private final NewsBatch mOldNews;
+        private final NewsBatch mNewNews;
 
+        NewsDiff(NewsBatch oldNews, NewsBatch newNews) {
+            mOldNews = oldNews;
+            mNewNews = newNews;
         }
-        // Find the news at the given position in the list of news
-        News currentNews = getItem(position);
-        if (currentNews.getThumbnail() != null) {
-            holder.mThumbnailImageView.setImageBitmap(currentNews.getThumbnail());
+
+        @Override
+        public int getOldListSize() {
+            return mOldNews.size();
         }
-        // Display the INFO of the current news in that all TextView
-        holder.mTitleTextView.setText(currentNews.getTitle());
-        holder.mAuthorTextView.setText(currentNews.getAuthor());
-        holder.mDataTextView.setText(currentNews.getDate());
-        holder.mSectionTextView.setText(currentNews.getSectionName());
-        // Return the list item view that is now showing the appropriate data
-        return convertView;
-    }
-}
\ No newline at end of file
+
+        @Override
+        public int getNewListSize() {
+            return mNewNews.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            String oldUrl = mOldNews.getUrl(oldPosition);
+            String newUrl = mNewNews.getUrl(newPosition);
+            if (oldUrl != null || newUrl != null) {
+                return oldUrl != null && oldUrl.equals(newUrl);
+            }
+            return TextUtils.equals(mOldNews.getTitle(oldPosition), mNewNews.getTitle(newPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return mOldNews.equalsAt(oldPosition, mNewNews, newPosition);
+        }
+    }
+}
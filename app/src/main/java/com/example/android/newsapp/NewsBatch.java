@@ -0,0 +1,260 @@
+package com.example.android.newsapp;
+
+import android.text.TextUtils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of news stored column by column, one array per field, instead of one
+ * {@link News} object per article. Section and author names, which repeat across the results
+ * of a load, are interned through the string table of the {@link Builder}, so every distinct
+ * value is held once.
+ * <p>
+ * The columns can be read by index without creating any object. {@link #get(int)} returns
+ * a new {@link News} on every call, meant to be short lived, so code walking a whole batch,
+ * as the list adapter and the comparison of two batches do, reads the columns instead.
+ */
+public final class NewsBatch extends AbstractList<News> implements RandomAccess {
+
+    private static final NewsBatch EMPTY = new Builder().build();
+
+    // Approximate heap sizes for sizeInBytes()
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ARRAY_BYTES = 16;
+    private static final int STRING_BYTES = 24;
+
+    private final int mSize;
+    private final String[] mTitles;
+    private final String[] mSectionNames;
+    private final String[] mAuthors;
+    private final long[] mTimesInMillis;
+    private final String[] mUrls;
+    private final String[] mThumbnailUrls;
+
+    private NewsBatch(Builder builder) {
+        mSize = builder.mSize;
+        mTitles = Arrays.copyOf(builder.mTitles, mSize);
+        mSectionNames = Arrays.copyOf(builder.mSectionNames, mSize);
+        mAuthors = Arrays.copyOf(builder.mAuthors, mSize);
+        mTimesInMillis = Arrays.copyOf(builder.mTimesInMillis, mSize);
+        mUrls = Arrays.copyOf(builder.mUrls, mSize);
+        mThumbnailUrls = Arrays.copyOf(builder.mThumbnailUrls, mSize);
+    }
+
+    /**
+     * Returns the batch without any news.
+     */
+    public static NewsBatch empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the given news as a batch, or the list itself if it already is one.
+     */
+    public static NewsBatch copyOf(List<News> newsList) {
+        if (newsList instanceof NewsBatch) {
+            return (NewsBatch) newsList;
+        }
+        if (newsList.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        for (int i = 0; i < newsList.size(); i++) {
+            builder.add(newsList.get(i));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public News get(int index) {
+        checkIndex(index);
+        return new News(mTitles[index], mSectionNames[index], mAuthors[index],
+                mTimesInMillis[index], mUrls[index], mThumbnailUrls[index]);
+    }
+
+    public String getTitle(int index) {
+        checkIndex(index);
+        return mTitles[index];
+    }
+
+    public String getSectionName(int index) {
+        checkIndex(index);
+        return mSectionNames[index];
+    }
+
+    public String getAuthor(int index) {
+        checkIndex(index);
+        return mAuthors[index];
+    }
+
+    public long getTimeInMillis(int index) {
+        checkIndex(index);
+        return mTimesInMillis[index];
+    }
+
+    public String getUrl(int index) {
+        checkIndex(index);
+        return mUrls[index];
+    }
+
+    public String getThumbnailUrl(int index) {
+        checkIndex(index);
+        return mThumbnailUrls[index];
+    }
+
+    /**
+     * Returns whether the news at the given index equals the news at the other index of the
+     * other batch, as {@link News#equals(Object)} would tell.
+     */
+    public boolean equalsAt(int index, NewsBatch other, int otherIndex) {
+        checkIndex(index);
+        other.checkIndex(otherIndex);
+        return mTimesInMillis[index] == other.mTimesInMillis[otherIndex]
+                && TextUtils.equals(mUrls[index], other.mUrls[otherIndex])
+                && TextUtils.equals(mTitles[index], other.mTitles[otherIndex])
+                && TextUtils.equals(mAuthors[index], other.mAuthors[otherIndex])
+                && TextUtils.equals(mSectionNames[index], other.mSectionNames[otherIndex])
+                && TextUtils.equals(mThumbnailUrls[index], other.mThumbnailUrls[otherIndex]);
+    }
+
+    /**
+     * Compares column by column with another batch, without creating a news for each row.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NewsBatch)) {
+            return super.equals(o);
+        }
+        NewsBatch other = (NewsBatch) o;
+        if (mSize != other.mSize) {
+            return false;
+        }
+        for (int i = 0; i < mSize; i++) {
+            if (!equalsAt(i, other, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code {@link List#hashCode()} defines, from the hash codes of the news,
+     * which only depend on their web URLs.
+     */
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < mSize; i++) {
+            hashCode = 31 * hashCode + (mUrls[i] == null ? 0 : mUrls[i].hashCode());
+        }
+        return hashCode;
+    }
+
+    /**
+     * Returns roughly how many bytes of heap the batch holds. Names shared between news
+     * are counted for each of them, so this errs on the high side.
+     */
+    public long sizeInBytes() {
+        // Six columns of references and one of longs, and their headers
+        long bytes = ARRAY_BYTES * 7 + (long) mSize * (REFERENCE_BYTES * 6 + 8);
+        for (int i = 0; i < mSize; i++) {
+            bytes += stringBytes(mTitles[i]) + stringBytes(mSectionNames[i])
+                    + stringBytes(mAuthors[i]) + stringBytes(mUrls[i])
+                    + stringBytes(mThumbnailUrls[i]);
+        }
+        return bytes;
+    }
+
+    // A string object and its char array
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + ARRAY_BYTES + 2L * value.length();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mSize);
+        }
+    }
+
+    /**
+     * Collects the news of one load into a {@link NewsBatch}. Not thread safe.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        // Value -> the one instance of it kept in the batch
+        private final Map<String, String> mStringTable = new HashMap<>();
+
+        private int mSize;
+        private String[] mTitles = new String[INITIAL_CAPACITY];
+        private String[] mSectionNames = new String[INITIAL_CAPACITY];
+        private String[] mAuthors = new String[INITIAL_CAPACITY];
+        private long[] mTimesInMillis = new long[INITIAL_CAPACITY];
+        private String[] mUrls = new String[INITIAL_CAPACITY];
+        private String[] mThumbnailUrls = new String[INITIAL_CAPACITY];
+
+        public Builder add(News news) {
+            return add(news.getTitle(), news.getSectionName(), news.getAuthor(),
+                    news.getTimeInMillis(), news.getUrl(), news.getThumbnailUrl());
+        }
+
+        public Builder add(String title, String sectionName, String author, long timeInMillis,
+                           String url, String thumbnailUrl) {
+            if (mSize == mTitles.length) {
+                grow();
+            }
+            mTitles[mSize] = title;
+            mSectionNames[mSize] = intern(sectionName);
+            mAuthors[mSize] = intern(author);
+            mTimesInMillis[mSize] = timeInMillis;
+            mUrls[mSize] = url;
+            mThumbnailUrls[mSize] = thumbnailUrl;
+            mSize++;
+            return this;
+        }
+
+        public int size() {
+            return mSize;
+        }
+
+        public NewsBatch build() {
+            return new NewsBatch(this);
+        }
+
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String interned = mStringTable.get(value);
+            if (interned == null) {
+                mStringTable.put(value, value);
+                interned = value;
+            }
+            return interned;
+        }
+
+        private void grow() {
+            int capacity = mTitles.length * 2;
+            mTitles = Arrays.copyOf(mTitles, capacity);
+            mSectionNames = Arrays.copyOf(mSectionNames, capacity);
+            mAuthors = Arrays.copyOf(mAuthors, capacity);
+            mTimesInMillis = Arrays.copyOf(mTimesInMillis, capacity);
+            mUrls = Arrays.copyOf(mUrls, capacity);
+            mThumbnailUrls = Arrays.copyOf(mThumbnailUrls, capacity);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.android.newsapp;
+
+import android.provider.BaseColumns;
+
+/**
+ * API Contract for the News app database.
+ */
+public final class NewsContract {
+
+    /**
+     * To prevent someone from accidentally instantiating the contract class,
+     * give it an empty constructor.
+     */
+    private NewsContract() {
+    }
+
+    /**
+     * Inner class that defines constant values for the articles database table.
+     * Each entry in the table represents a single {@link News} returned for a query,
+     * keyed by the query and the URL of the news.
+     */
+    public static final class ArticleEntry implements BaseColumns {
+
+        /**
+         * Name of database table for articles
+         */
+        public static final String TABLE_NAME = "articles";
+
+        /**
+         * The query the article was returned for, its store key, which is the topics of the
+         * {@link NewsQuery} joined by new lines. Rows keyed by request URL before version 3 of
+         * the database are dropped by {@link NewsDbHelper#onUpgrade}.
+         * <p>
+         * Type: TEXT
+         */
+        public static final String COLUMN_QUERY = "query";
+
+        /**
+         * URL of the article, unique within a query
+         * <p>
+         * Type: TEXT
+         */
+        public static final String COLUMN_WEB_URL = "web_url";
+
+        /**
+         * Position of the article in the response
+         * <p>
+         * Type: INTEGER
+         */
+        public static final String COLUMN_POSITION = "position";
+
+        /**
+         * Type: TEXT
+         */
+        public static final String COLUMN_TITLE = "title";
+
+        /**
+         * Type: TEXT
+         */
+        public static final String COLUMN_SECTION = "section";
+
+        /**
+         * Type: TEXT
+         */
+        public static final String COLUMN_AUTHOR = "author";
+
+        /**
+         * Publication time, in milliseconds since the epoch
+         * <p>
+         * Type: INTEGER
+         */
+        public static final String COLUMN_PUBLISHED_AT = "published_at";
+
+        /**
+         * Type: TEXT
+         */
+        public static final String COLUMN_THUMBNAIL_URL = "thumbnail_url";
+
+        /**
+         * Time the article was last stored, in milliseconds since the epoch
+         * <p>
+         * Type: INTEGER
+         */
+        public static final String COLUMN_STORED_AT = "stored_at";
+    }
+}
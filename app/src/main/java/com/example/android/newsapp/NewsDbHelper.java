@@ -0,0 +1,62 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.android.newsapp.NewsContract.ArticleEntry;
+
+/**
+ * Database helper for the News app. Manages database creation and version management.
+ */
+public class NewsDbHelper extends SQLiteOpenHelper {
+
+    /**
+     * Name of the database file
+     */
+    private static final String DATABASE_NAME = "news.db";
+
+    /**
+     * Database version. If you change the database schema, you must increment the database version.
+     * Version 3 keys the news by their topics alone, which leaves the rows of older keys unread.
+     */
+    private static final int DATABASE_VERSION = 3;
+
+    /**
+     * Constructs a new instance of {@link NewsDbHelper}.
+     *
+     * @param context of the app
+     */
+    public NewsDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * This is called when the database is created for the first time.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        String SQL_CREATE_ARTICLES_TABLE = "CREATE TABLE " + ArticleEntry.TABLE_NAME + " ("
+                + ArticleEntry.COLUMN_QUERY + " TEXT NOT NULL, "
+                + ArticleEntry.COLUMN_WEB_URL + " TEXT NOT NULL, "
+                + ArticleEntry.COLUMN_POSITION + " INTEGER NOT NULL, "
+                + ArticleEntry.COLUMN_TITLE + " TEXT, "
+                + ArticleEntry.COLUMN_SECTION + " TEXT, "
+                + ArticleEntry.COLUMN_AUTHOR + " TEXT, "
+                + ArticleEntry.COLUMN_PUBLISHED_AT + " INTEGER NOT NULL, "
+                + ArticleEntry.COLUMN_THUMBNAIL_URL + " TEXT, "
+                + ArticleEntry.COLUMN_STORED_AT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + ArticleEntry.COLUMN_QUERY + ", " + ArticleEntry.COLUMN_WEB_URL + "));";
+        db.execSQL(SQL_CREATE_ARTICLES_TABLE);
+    }
+
+    /**
+     * This is called when the database needs to be upgraded. The store only holds
+     * data that can be fetched again, so it is simply recreated.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + ArticleEntry.TABLE_NAME);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.android.newsapp;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the titles, sections and authors of every news loaded or
+ * stored, so the filter box narrows them down without the network.
+ * <p>
+ * Words are lower cased and stripped of accents. Every word of a query must start a word of
+ * a news for it to match, so "gre ele" finds "Greek elections". The words are kept sorted,
+ * which turns a prefix into a range of them, and each word maps to the set of news it
+ * appears in. News are added as they are loaded, and a news already indexed is only
+ * indexed again when it changed.
+ * <p>
+ * Searches run on the main thread as the filter is typed, so they never wait on indexing.
+ * Indexing works on a copy of the index and publishes it once done, and a search reads
+ * whichever copy was published last.
+ */
+public final class NewsIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+
+    /**
+     * Newest first, news without a publication time last
+     */
+    private static final Comparator<News> NEWEST_FIRST = new Comparator<News>() {
+        @Override
+        public int compare(News a, News b) {
+            long timeA = a.getTimeInMillis();
+            long timeB = b.getTimeInMillis();
+            return timeA > timeB ? -1 : (timeA == timeB ? 0 : 1);
+        }
+    };
+
+    private static final NewsIndex sInstance = new NewsIndex();
+
+    // Never changed once published
+    private volatile Snapshot mSnapshot = new Snapshot();
+
+    /**
+     * Returns the process wide index.
+     */
+    public static NewsIndex getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Indexes the given news, skipping those already indexed unchanged. Indexing runs one
+     * call at a time, while searches go on over what was indexed before.
+     */
+    public synchronized void addAll(List<News> newsList) {
+        Snapshot published = mSnapshot;
+        Snapshot next = null;
+        // Words whose documents were copied into the next snapshot, so they can be changed
+        Set<String> copiedWords = new HashSet<>();
+        for (int i = 0; i < newsList.size(); i++) {
+            News news = newsList.get(i);
+            if (news.getUrl() == null || isIndexed(next != null ? next : published, news)) {
+                continue;
+            }
+            if (next == null) {
+                next = new Snapshot(published);
+            }
+            next.add(news, copiedWords);
+        }
+        if (next != null) {
+            mSnapshot = next;
+        }
+    }
+
+    private static boolean isIndexed(Snapshot snapshot, News news) {
+        Integer id = snapshot.mIds.get(news.getUrl());
+        return id != null && snapshot.mDocuments.get(id).equals(news);
+    }
+
+    /**
+     * Returns the news matching every word of the query, newest first,
+     * or null if the query has no word, meaning nothing is filtered out.
+     */
+    public List<News> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        Snapshot snapshot = mSnapshot;
+        BitSet matches = null;
+        for (String term : terms) {
+            BitSet termMatches = new BitSet();
+            // Every word starting with the term sorts from the term up to the term followed
+            // by the highest char
+            SortedMap<String, BitSet> words = snapshot.mPostings.subMap(term, term + Character.MAX_VALUE);
+            for (BitSet documents : words.values()) {
+                termMatches.or(documents);
+            }
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.and(termMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        List<News> result = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            result.add(snapshot.mDocuments.get(id));
+        }
+        Collections.sort(result, NEWEST_FIRST);
+        return result;
+    }
+
+    private static List<String> wordsOf(News news) {
+        List<String> words = tokenize(news.getTitle());
+        words.addAll(tokenize(news.getSectionName()));
+        words.addAll(tokenize(news.getAuthor()));
+        return words;
+    }
+
+    /**
+     * Splits the text into lower case words without accents.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String normalized = COMBINING_MARKS.matcher(
+                Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length()
+                    && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The documents and postings of the index at one point in time.
+     */
+    private static final class Snapshot {
+        // Document id -> news, an id is the position of the news in this list
+        final List<News> mDocuments;
+        // Web URL -> document id
+        final Map<String, Integer> mIds;
+        // Word -> ids of the documents containing it, sorted so a prefix is a range of words
+        final TreeMap<String, BitSet> mPostings;
+
+        Snapshot() {
+            mDocuments = new ArrayList<>();
+            mIds = new HashMap<>();
+            mPostings = new TreeMap<>();
+        }
+
+        /**
+         * Copies the given snapshot, sharing the documents of each word until it is changed.
+         */
+        Snapshot(Snapshot other) {
+            mDocuments = new ArrayList<>(other.mDocuments);
+            mIds = new HashMap<>(other.mIds);
+            mPostings = new TreeMap<>(other.mPostings);
+        }
+
+        /**
+         * Indexes the news, which is not indexed yet or changed since. The documents of the
+         * words in copiedWords belong to this snapshot, the others are copied before a change.
+         */
+        void add(News news, Set<String> copiedWords) {
+            Integer id = mIds.get(news.getUrl());
+            if (id == null) {
+                id = mDocuments.size();
+                mDocuments.add(news);
+                mIds.put(news.getUrl(), id);
+            } else {
+                // Changed since it was indexed, so its old words go first
+                for (String word : wordsOf(mDocuments.get(id))) {
+                    BitSet documents = documentsToChange(word, copiedWords);
+                    // A word repeated in the news may be gone already
+                    if (documents == null) {
+                        continue;
+                    }
+                    documents.clear(id);
+                    if (documents.isEmpty()) {
+                        mPostings.remove(word);
+                        copiedWords.remove(word);
+                    }
+                }
+                mDocuments.set(id, news);
+            }
+            for (String word : wordsOf(news)) {
+                BitSet documents = documentsToChange(word, copiedWords);
+                if (documents == null) {
+                    documents = new BitSet();
+                    mPostings.put(word, documents);
+                    copiedWords.add(word);
+                }
+                documents.set(id);
+            }
+        }
+
+        private BitSet documentsToChange(String word, Set<String> copiedWords) {
+            BitSet documents = mPostings.get(word);
+            if (documents != null && copiedWords.add(word)) {
+                documents = (BitSet) documents.clone();
+                mPostings.put(word, documents);
+            }
+            return documents;
+        }
+    }
+}
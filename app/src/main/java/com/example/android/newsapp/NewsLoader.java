@@ -17,12 +17,31 @@ package com.example.android.newsapp;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Loads a list of news by using an AsyncTask to perform the
- * network request to the given URL.
+ * network request to the given URLs, one per topic.
+ * <p>
+ * The news shown last, kept by the {@link FeedSnapshot}, or else the news stored for the URLs
+ * by the {@link NewsStore} are delivered first, so the list shows up at once and offline.
+ * The network result then replaces them, but only when it differs.
+ * <p>
+ * The topics are fetched in parallel and merged by {@link TopicFeeds}, newest first.
+ * The URLs are fetched one page at a time. {@link #loadNextPage()} fetches the following page
+ * and delivers the news loaded so far with the new page appended, up to a maximum number
+ * of news. Pages that were already loaded are never requested again.
  */
 public class NewsLoader extends AsyncTaskLoader<List<News>> {
 
@@ -32,23 +51,185 @@ public class NewsLoader extends AsyncTaskLoader<List<News>> {
     private static final String LOG_TAG = NewsLoader.class.getName();
 
     /**
-     * Query URL
+     * Wait before asking again for a page that failed, doubled on every failure in a row
      */
-    private String mUrl;
+    private static final long PAGE_RETRY_BASE_MILLIS = 2000;
+
+    /**
+     * Longest wait before asking again for a page that failed
+     */
+    private static final long PAGE_RETRY_MAX_MILLIS = 60000;
+
+    /**
+     * Query URLs, one per topic
+     */
+    private final List<String> mUrls;
+
+    /**
+     * Key of the news of the query URLs in the {@link NewsStore}
+     */
+    private final String mStoreKey;
+
+    /**
+     * Number of news requested per page
+     */
+    private final int mPageSize;
+
+    /**
+     * Number of news after which no more pages are loaded
+     */
+    private final int mMaxNews;
+
+    /**
+     * Timeouts of the requests, chosen for the network the query was made on
+     */
+    private final FetchProfile mProfile;
+
+    /**
+     * Store of the news last delivered for each query
+     */
+    private final NewsStore mStore;
+
+    /**
+     * Snapshot of the news shown last, read back at a cold start
+     */
+    private final FeedSnapshot mSnapshot;
+
+    /**
+     * News last written to the snapshot
+     */
+    private List<News> mSnapshotNews;
+
+    /**
+     * Index of the news searched by the filter box, fed with every news loaded
+     */
+    private final NewsIndex mIndex = NewsIndex.getInstance();
+
+    /**
+     * True once the news stored for all queries were indexed
+     */
+    private volatile boolean mStoreIndexed;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * News delivered last, kept to be redelivered when the loader is started again
+     */
+    private volatile List<News> mNews;
+
+    /**
+     * Pages loaded from the network so far, and pages asked for by {@link #loadNextPage()}
+     */
+    private volatile int mLoadedPages;
+    private volatile int mRequestedPages = 1;
+
+    /**
+     * False once every topic had a page come back short, meaning it was its last one
+     */
+    private volatile boolean mHasMorePages = true;
+
+    /**
+     * Pages loaded of each topic, and whether each may have more. Topics run out at different
+     * pages, and a topic that failed is asked for the same page again, so each has its own.
+     * Only touched on the background thread.
+     */
+    private final int[] mTopicPages;
+    private final boolean[] mTopicHasMore;
+
+    /**
+     * Pages that failed in a row, and {@link SystemClock#elapsedRealtime()} when the last one
+     * did, so an offline scroll does not ask for the page again on every frame
+     */
+    private volatile int mPageFailures;
+    private volatile long mPageFailedAt;
+
+    /**
+     * True while a page asked for by {@link #loadNextPage()} is being loaded
+     */
+    private boolean mPageInFlight;
+
+    /**
+     * Signal of the load running in the background, cancelled to abort its request
+     */
+    private CancellationSignal mCancellationSignal;
 
     /**
      * Constructs a new {@link NewsLoader}.
      *
-     * @param context of the activity
-     * @param url     to load data from
+     * @param context  of the activity
+     * @param query   to load data for
      */
-    public NewsLoader(Context context, String url) {
+    public NewsLoader(Context context, NewsQuery query) {
         super(context);
-        mUrl = url;
+        mUrls = query.getUrls();
+        mTopicPages = new int[mUrls.size()];
+        mTopicHasMore = new boolean[mUrls.size()];
+        mStoreKey = query.getStoreKey();
+        mPageSize = query.getPageSize();
+        mMaxNews = query.getMaxNews();
+        mProfile = query.getProfile();
+        mStore = NewsStore.getInstance(context);
+        mSnapshot = FeedSnapshot.getInstance(context);
     }
 
     @Override
     protected void onStartLoading() {
+        if (mNews != null) {
+            deliverResult(mNews);
+        }
+        if (mNews == null || mRequestedPages > mLoadedPages || takeContentChanged()) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+        // The app may be killed from now on, so keep what is shown for the next cold start
+        List<News> news = mNews;
+        if (news != null && news != mSnapshotNews) {
+            mSnapshotNews = news;
+            mSnapshot.saveAsync(mStoreKey, news);
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        mNews = null;
+    }
+
+    @Override
+    public void onCanceled(List<News> news) {
+        mPageInFlight = false;
+    }
+
+    @Override
+    public void deliverResult(List<News> news) {
+        if (isReset()) {
+            return;
+        }
+        mNews = news;
+        mPageInFlight = false;
+        if (isStarted()) {
+            super.deliverResult(news);
+        }
+    }
+
+    /**
+     * Starts loading the page after the last one loaded, unless one is already loading,
+     * there are no more pages, or the page failed too recently to try it again.
+     * Must be called on the main thread.
+     */
+    public void loadNextPage() {
+        List<News> current = mNews;
+        if (mPageInFlight || current == null || mLoadedPages < mRequestedPages
+                || !mHasMorePages || current.size() >= mMaxNews || isBackingOffPage()) {
+            return;
+        }
+        mPageInFlight = true;
+        mRequestedPages = mLoadedPages + 1;
         forceLoad();
     }
 
@@ -57,12 +238,189 @@ public class NewsLoader extends AsyncTaskLoader<List<News>> {
      */
     @Override
     public List<News> loadInBackground() {
-        if (mUrl == null) {
+        if (mUrls.isEmpty()) {
             return null;
         }
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            mCancellationSignal = new CancellationSignal();
+        }
+        try {
+            List<News> news = loadNews(mCancellationSignal);
+            // Keep the filter box able to find whatever is shown, and what other queries stored
+            if (news != null) {
+                mIndex.addAll(news);
+            }
+            if (!mStoreIndexed) {
+                mStoreIndexed = true;
+                mIndex.addAll(mStore.loadAll());
+            }
+            return news;
+        } finally {
+            synchronized (this) {
+                mCancellationSignal = null;
+            }
+            NewsMetrics.getInstance().dumpIfLoggable();
+            // A load adds feeds and thumbnails, which may have outgrown their budget
+            MemoryGovernor.getInstance(getContext()).checkBudget();
+        }
+    }
+
+    /**
+     * Aborts the request of the load running in the background, so a superseded query
+     * stops using the network right away.
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (this) {
+            if (mCancellationSignal != null) {
+                mCancellationSignal.cancel();
+            }
+        }
+    }
+
+    private List<News> loadNews(CancellationSignal signal) {
+
+        List<News> current = mNews;
+        if (current != null && mLoadedPages > 0 && mRequestedPages > mLoadedPages) {
+            return appendPage(current, mLoadedPages + 1, signal);
+        }
+
+        // Serve the snapshot of the feed shown last, or else what is stored,
+        // while the network request is still running
+        List<News> snapshot = current == null ? mSnapshot.load(mStoreKey) : null;
+        final List<News> stored = snapshot != null ? snapshot : mStore.load(mStoreKey);
+        mIndex.addAll(stored);
+        if (current == null && !stored.isEmpty()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // Only if nothing newer has been delivered in the meantime
+                    if (mNews == null) {
+                        deliverResult(stored);
+                    }
+                }
+            });
+        }
+        List<News> delivered = current != null ? current : (stored.isEmpty() ? null : stored);
 
         // Perform the network request, parse the response, and extract a list of news.
-        List<News> newsList = QueryUtils.fetchNewsData(mUrl);
+        TopicFeeds.Page page = TopicFeeds.fetch(mUrls, mProfile, mPageSize, signal);
+        if (page == null) {
+            // Offline or failed, keep showing what was delivered
+            return delivered;
+        }
+        mLoadedPages = 1;
+        mPageFailures = 0;
+        // A topic that failed starts from its first page when the next page is loaded
+        Arrays.fill(mTopicPages, 0);
+        Arrays.fill(mTopicHasMore, true);
+        recordPage(page, allTopics());
+        List<News> newsList = page.news;
+        if (newsList.size() > mMaxNews) {
+            newsList = NewsBatch.copyOf(newsList.subList(0, mMaxNews));
+        }
+        if (newsList.equals(delivered)) {
+            // Returning the very same list makes the LoaderManager skip the delivery
+            return delivered;
+        }
+        if (!newsList.equals(stored)) {
+            mStore.save(mStoreKey, newsList);
+        }
         return newsList;
     }
+
+    /**
+     * Fetches the next page of every topic that has more and returns the current news with
+     * them appended.
+     */
+    private List<News> appendPage(List<News> current, int page, CancellationSignal signal) {
+        List<Integer> topics = new ArrayList<>(mUrls.size());
+        List<String> pageUrls = new ArrayList<>(mUrls.size());
+        for (int i = 0; i < mUrls.size(); i++) {
+            if (mTopicHasMore[i]) {
+                topics.add(i);
+                pageUrls.add(Uri.parse(mUrls.get(i)).buildUpon()
+                        .appendQueryParameter(getContext().getString(R.string.page),
+                                String.valueOf(mTopicPages[i] + 1))
+                        .build().toString());
+            }
+        }
+        if (topics.isEmpty()) {
+            mHasMorePages = false;
+            return current;
+        }
+        TopicFeeds.Page topicsPage = TopicFeeds.fetch(pageUrls, mProfile, mPageSize, signal);
+        if (topicsPage == null) {
+            // Failed, the page is asked for again by a loadNextPage() after the backoff
+            mPageFailedAt = SystemClock.elapsedRealtime();
+            mPageFailures++;
+            mRequestedPages = mLoadedPages;
+            return current;
+        }
+        mPageFailures = 0;
+        mLoadedPages = page;
+        recordPage(topicsPage, topics);
+        List<News> pageNews = topicsPage.news;
+
+        // New articles published in the meantime shift the pages, so skip repeats
+        Set<String> urls = new HashSet<>();
+        for (News news : current) {
+            urls.add(news.getUrl());
+        }
+        // One batch for the whole feed, so names repeating across pages are held once
+        NewsBatch.Builder newsList = new NewsBatch.Builder();
+        for (News news : current) {
+            newsList.add(news);
+        }
+        for (News news : pageNews) {
+            if (newsList.size() >= mMaxNews) {
+                break;
+            }
+            if (urls.add(news.getUrl())) {
+                newsList.add(news);
+            }
+        }
+        return newsList.build();
+    }
+
+    private boolean isBackingOffPage() {
+        int failures = mPageFailures;
+        if (failures == 0) {
+            return false;
+        }
+        long backoff = Math.min(PAGE_RETRY_MAX_MILLIS,
+                PAGE_RETRY_BASE_MILLIS << Math.min(failures - 1, 16));
+        return SystemClock.elapsedRealtime() - mPageFailedAt < backoff;
+    }
+
+    /**
+     * Counts a page for each of the given topics that was fetched, in the order they were
+     * fetched, and updates whether any topic has more pages.
+     */
+    private void recordPage(TopicFeeds.Page page, List<Integer> topics) {
+        for (int i = 0; i < topics.size(); i++) {
+            int topic = topics.get(i);
+            if (page.isFetched(i)) {
+                mTopicPages[topic]++;
+                mTopicHasMore[topic] = page.hasMore(i);
+            }
+        }
+        boolean hasMore = false;
+        for (boolean topicHasMore : mTopicHasMore) {
+            hasMore |= topicHasMore;
+        }
+        mHasMorePages = hasMore;
+    }
+
+    private List<Integer> allTopics() {
+        List<Integer> topics = new ArrayList<>(mUrls.size());
+        for (int i = 0; i < mUrls.size(); i++) {
+            topics.add(i);
+        }
+        return topics;
+    }
 }
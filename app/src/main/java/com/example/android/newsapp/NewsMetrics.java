@@ -0,0 +1,203 @@
+package com.example.android.newsapp;
+
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Timings and byte counts of each stage of fetching the news and their thumbnails.
+ * Every stage keeps its most recent samples, from which rolling percentiles are computed,
+ * and is wrapped in an {@link Trace} section so it shows up in systrace.
+ * <p>
+ * A stage is measured by pairing {@link #begin(Stage)} with one of the end methods,
+ * on the same thread. Run {@code adb shell setprop log.tag.NewsMetrics DEBUG} to have
+ * {@link #dumpIfLoggable()} write the summaries to logcat after every load.
+ */
+public final class NewsMetrics {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = NewsMetrics.class.getSimpleName();
+
+    /**
+     * Number of most recent samples kept per stage
+     */
+    private static final int WINDOW = 128;
+
+    /**
+     * The measured stages, in pipeline order
+     */
+    public enum Stage {
+        /** Opening the connection of the search request */
+        CONNECT("news:connect"),
+        /** Waiting for the status line of the search response */
+        FIRST_BYTE("news:firstByte"),
+        /** Downloading and parsing the search response, which are interleaved */
+        BODY("news:body"),
+        /** Opening the connection of a thumbnail request */
+        IMAGE_CONNECT("image:connect"),
+        /** Waiting for the status line of a thumbnail response */
+        IMAGE_FIRST_BYTE("image:firstByte"),
+        /** Downloading a thumbnail */
+        IMAGE_BODY("image:body"),
+        /** Decoding a thumbnail */
+        IMAGE_DECODE("image:decode");
+
+        private final String mTraceName;
+
+        Stage(String traceName) {
+            mTraceName = traceName;
+        }
+    }
+
+    private static final NewsMetrics sInstance = new NewsMetrics();
+
+    private final Recorder[] mRecorders = new Recorder[Stage.values().length];
+
+    private NewsMetrics() {
+        for (int i = 0; i < mRecorders.length; i++) {
+            mRecorders[i] = new Recorder();
+        }
+    }
+
+    /**
+     * Returns the process wide metrics.
+     */
+    public static NewsMetrics getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Starts measuring a stage and returns its start time, to be passed to the end method.
+     */
+    public long begin(Stage stage) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(stage.mTraceName);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends measuring a stage started at the given time.
+     */
+    public void end(Stage stage, long startNanos) {
+        end(stage, startNanos, 0);
+    }
+
+    /**
+     * Ends measuring a stage started at the given time, that transferred the given bytes.
+     */
+    public void end(Stage stage, long startNanos, long bytes) {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        mRecorders[stage.ordinal()].record(durationNanos, bytes);
+    }
+
+    /**
+     * Returns a summary of the recent samples of a stage.
+     */
+    public Summary getSummary(Stage stage) {
+        return mRecorders[stage.ordinal()].summarize(stage);
+    }
+
+    /**
+     * Writes the summary of every stage to logcat.
+     */
+    public void dump() {
+        for (Stage stage : Stage.values()) {
+            Log.i(LOG_TAG, getSummary(stage).toString());
+        }
+    }
+
+    /**
+     * Writes the summary of every stage to logcat if debug logging is on for {@link #LOG_TAG}.
+     */
+    public void dumpIfLoggable() {
+        if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            dump();
+        }
+    }
+
+    /**
+     * Percentiles, totals and throughput of the recent samples of a stage.
+     */
+    public static final class Summary {
+        public final Stage stage;
+        /** Number of samples ever recorded */
+        public final long count;
+        public final double p50Millis;
+        public final double p90Millis;
+        public final double p99Millis;
+        /** Bytes transferred over all samples ever recorded */
+        public final long totalBytes;
+        /** Bytes per second over the recent samples, 0 for stages that move no bytes */
+        public final double bytesPerSecond;
+
+        Summary(Stage stage, long count, double p50Millis, double p90Millis, double p99Millis,
+                long totalBytes, double bytesPerSecond) {
+            this.stage = stage;
+            this.count = count;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: n=%d p50=%.1fms p90=%.1fms p99=%.1fms bytes=%d rate=%.1fKB/s",
+                    stage, count, p50Millis, p90Millis, p99Millis, totalBytes,
+                    bytesPerSecond / 1024);
+        }
+    }
+
+    /**
+     * Ring buffer of the most recent samples of one stage.
+     */
+    private static final class Recorder {
+        private final long[] mDurations = new long[WINDOW];
+        private final long[] mBytes = new long[WINDOW];
+        private long mCount;
+        private long mTotalBytes;
+
+        synchronized void record(long durationNanos, long bytes) {
+            int index = (int) (mCount % WINDOW);
+            mDurations[index] = durationNanos;
+            mBytes[index] = bytes;
+            mCount++;
+            mTotalBytes += bytes;
+        }
+
+        synchronized Summary summarize(Stage stage) {
+            int size = (int) Math.min(mCount, WINDOW);
+            long[] sorted = Arrays.copyOf(mDurations, size);
+            Arrays.sort(sorted);
+            long windowNanos = 0;
+            long windowBytes = 0;
+            for (int i = 0; i < size; i++) {
+                windowNanos += mDurations[i];
+                windowBytes += mBytes[i];
+            }
+            double bytesPerSecond = windowNanos == 0 ? 0 : windowBytes * 1e9 / windowNanos;
+            return new Summary(stage, mCount, percentileMillis(sorted, 50),
+                    percentileMillis(sorted, 90), percentileMillis(sorted, 99),
+                    mTotalBytes, bytesPerSecond);
+        }
+
+        private static double percentileMillis(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the news of the current query in the background, while the device is charging
+ * on an unmetered network, so a launch finds recent news in the {@link NewsStore} and their
+ * thumbnails on disk instead of waiting for the network.
+ * <p>
+ * The refresh is run by {@link NewsPrefetchJobService}, which needs the JobScheduler of
+ * Lollipop. Older devices only load the news when the app is opened.
+ */
+public final class NewsPrefetch {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = NewsPrefetch.class.getSimpleName();
+
+    private static final int JOB_ID = 1;
+
+    /**
+     * How often the news are refreshed, at most, while the constraints are met
+     */
+    private static final long PERIOD_MILLIS = TimeUnit.HOURS.toMillis(3);
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsPrefetch} object.
+     */
+    private NewsPrefetch() {
+    }
+
+    /**
+     * Schedules the periodic refresh, unless it already is. Does nothing before Lollipop.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleJob(context.getApplicationContext());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context) {
+        JobScheduler scheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) {
+            return;
+        }
+        // Scheduling again would restart the period, so a job already pending is kept
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, NewsPrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(PERIOD_MILLIS)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            // Before Oreo, requiring charging already keeps the job off a low battery
+            builder.setRequiresBatteryNotLow(true);
+        }
+        if (scheduler.schedule(builder.build()) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(LOG_TAG, "Could not schedule the news prefetch");
+        }
+    }
+
+    /**
+     * Fetches the first page of the current query into the {@link NewsStore}, downloads
+     * the thumbnails of its news into the disk cache and the bodies of the top news into the
+     * {@link ArticleStore}. The {@link FeedSnapshot}, which a cold start shows before the store,
+     * is rewritten with the fetched news too. This is on a background thread.
+     *
+     * @throws android.os.OperationCanceledException if the signal was cancelled
+     */
+    static void run(Context context, CancellationSignal signal) {
+        NewsQuery query = NewsQuery.fromPreferences(context);
+        List<News> newsList = TopicFeeds.fetch(query.getUrls(), query.getProfile(), signal);
+        if (newsList == null) {
+            return;
+        }
+        if (newsList.size() > query.getMaxNews()) {
+            newsList = NewsBatch.copyOf(newsList.subList(0, query.getMaxNews()));
+        }
+        NewsStore store = NewsStore.getInstance(context);
+        if (!newsList.equals(store.load(query.getStoreKey()))) {
+            store.save(query.getStoreKey(), newsList);
+        }
+
+        ThumbnailCache cache = ThumbnailCache.getInstance(context);
+        for (News news : newsList) {
+            signal.throwIfCanceled();
+            if (news.getThumbnailUrl() != null) {
+                QueryUtils.fetchingImageBytes(news.getThumbnailUrl(), cache);
+            }
+        }
+
+        // Taken once the thumbnails are on disk, so the snapshot carries those of the first news
+        FeedSnapshot.getInstance(context).save(query.getStoreKey(), newsList);
+
+        ArticleStore.getInstance(context).prefetch(newsList, query.getProfile(), signal);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+/**
+ * Runs the background refresh of {@link NewsPrefetch} on a worker thread when the
+ * JobScheduler decides its constraints are met.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class NewsPrefetchJobService extends JobService {
+
+    /**
+     * Signal of the refresh running, cancelled when the job is stopped
+     */
+    private CancellationSignal mCancellationSignal;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final CancellationSignal signal = new CancellationSignal();
+        mCancellationSignal = signal;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean cancelled = false;
+                // Whatever went wrong, the refresh is tried again later
+                boolean needsReschedule = true;
+                try {
+                    NewsPrefetch.run(getApplicationContext(), signal);
+                    needsReschedule = false;
+                } catch (OperationCanceledException e) {
+                    cancelled = true;
+                } finally {
+                    // Once stopped by onStopJob, which already asked for a reschedule,
+                    // the job must not be finished again
+                    if (!cancelled) {
+                        jobFinished(params, needsReschedule);
+                    }
+                }
+            }
+        }, NewsPrefetchJobService.class.getSimpleName()).start();
+        // The work goes on in the background
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints stopped being met, so the request is aborted and retried later
+        if (mCancellationSignal != null) {
+            mCancellationSignal.cancel();
+            mCancellationSignal = null;
+        }
+        return true;
+    }
+}
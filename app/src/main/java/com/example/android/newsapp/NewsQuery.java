@@ -0,0 +1,150 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The guardian query of the current settings: one search URL per topic of interest,
+ * and how many news to load a page at a time on the current network, as told by its
+ * {@link FetchProfile}. Shared by the activity and the background prefetch, so both load
+ * and store the very same query.
+ */
+public final class NewsQuery {
+
+    /**
+     * URL for news data from the GUARDIAN_URL dataset
+     */
+    private static final String GUARDIAN_URL =
+            "https://content.guardianapis.com/search?";
+
+    private final List<String> mTopics;
+    private final List<String> mUrls;
+    private final FetchProfile mProfile;
+    private final int mPageSize;
+    private final int mMaxNews;
+
+    private NewsQuery(List<String> topics, List<String> urls, FetchProfile profile,
+                      int pageSize, int maxNews) {
+        mTopics = Collections.unmodifiableList(topics);
+        mUrls = Collections.unmodifiableList(urls);
+        mProfile = profile;
+        mPageSize = pageSize;
+        mMaxNews = maxNews;
+    }
+
+    /**
+     * Returns the query of the current settings on the active network.
+     */
+    public static NewsQuery fromPreferences(Context context) {
+        FetchProfile profile = FetchProfile.forActiveNetwork(context);
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String pageNumber = sharedPrefs.getString(
+                context.getString(R.string.settings_page_key),
+                context.getString(R.string.settings_page_default));
+
+        // The article max is loaded a page at a time while scrolling, instead of in one request
+        int maxNews = parsePositiveInt(pageNumber,
+                Integer.parseInt(context.getString(R.string.settings_page_default)));
+        int pageSize = Math.min(profile.pageSize, maxNews);
+
+        String yourInterested = sharedPrefs.getString(
+                context.getString(R.string.settings_interest_key),
+                context.getString(R.string.settings_page_default));
+
+        // One request per topic, fetched in parallel and merged by publication time
+        List<String> topics = parseTopics(yourInterested);
+        List<String> urls = new ArrayList<>(topics.size());
+        for (String topic : topics) {
+            Uri baseUri = Uri.parse(GUARDIAN_URL);
+            Uri.Builder uriBuilder = baseUri.buildUpon();
+            if (profile.thumbnails) {
+                uriBuilder.appendQueryParameter(context.getString(R.string.showfields), context.getString(R.string.thumbnail));
+            }
+            uriBuilder.appendQueryParameter(context.getString(R.string.pageSize), String.valueOf(pageSize));
+            uriBuilder.appendQueryParameter(context.getString(R.string.q), topic);
+            if (topics.size() > 1) {
+                // The merge needs every topic ordered newest first
+                uriBuilder.appendQueryParameter(context.getString(R.string.orderBy), context.getString(R.string.newest));
+            }
+            uriBuilder.appendQueryParameter(context.getString(R.string.showTags), context.getString(R.string.contributor));
+            uriBuilder.appendQueryParameter(context.getString(R.string.apiKey), context.getString(R.string.apiKeyDecrypt));
+            urls.add(uriBuilder.toString());
+        }
+        return new NewsQuery(topics, urls, profile, pageSize, maxNews);
+    }
+
+    /**
+     * Returns the search URLs, one per topic, without the page parameter.
+     */
+    public List<String> getUrls() {
+        return mUrls;
+    }
+
+    /**
+     * Returns the profile of the network the query was made on.
+     */
+    public FetchProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * Returns the number of news requested per page, which is the page-size of the URLs.
+     */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * Returns the number of news after which no more pages are loaded.
+     */
+    public int getMaxNews() {
+        return mMaxNews;
+    }
+
+    /**
+     * Returns the key of the news of this query in the {@link NewsStore}. It only depends on
+     * the topics, so the news stored on one network are found again on any other.
+     */
+    public String getStoreKey() {
+        return TextUtils.join("\n", mTopics);
+    }
+
+    /**
+     * Returns the given preference value as a positive number, or the default if it is not one.
+     */
+    private static int parsePositiveInt(String value, int defaultValue) {
+        try {
+            int number = Integer.parseInt(value.trim());
+            return number > 0 ? number : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the comma separated topics of the interest setting, without blanks or repeats.
+     * A setting without any topic is kept as a single query, as it was before.
+     */
+    private static List<String> parseTopics(String interest) {
+        Set<String> topics = new LinkedHashSet<>();
+        for (String topic : interest.split(",")) {
+            topic = topic.trim();
+            if (!topic.isEmpty()) {
+                topics.add(topic);
+            }
+        }
+        if (topics.isEmpty()) {
+            topics.add(interest);
+        }
+        return new ArrayList<>(topics);
+    }
+}
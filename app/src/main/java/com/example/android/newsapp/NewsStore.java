@@ -0,0 +1,136 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import com.example.android.newsapp.NewsContract.ArticleEntry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent store of the news last delivered for each query, so a query can be shown
+ * straight away, and offline, before it is revalidated against the network.
+ * All methods touch the database and must not be called on the main thread.
+ */
+public final class NewsStore {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = NewsStore.class.getSimpleName();
+
+    /**
+     * Articles not stored again for this long are deleted
+     */
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String[] PROJECTION = {
+            ArticleEntry.COLUMN_TITLE,
+            ArticleEntry.COLUMN_SECTION,
+            ArticleEntry.COLUMN_AUTHOR,
+            ArticleEntry.COLUMN_PUBLISHED_AT,
+            ArticleEntry.COLUMN_WEB_URL,
+            ArticleEntry.COLUMN_THUMBNAIL_URL};
+
+    private static NewsStore sInstance;
+
+    private final NewsDbHelper mDbHelper;
+
+    private NewsStore(Context context) {
+        mDbHelper = new NewsDbHelper(context.getApplicationContext());
+    }
+
+    /**
+     * Returns the process wide store.
+     */
+    public static synchronized NewsStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsStore(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the news stored for the given query, in the order they were returned,
+     * or an empty list if there are none.
+     */
+    public List<News> load(String query) {
+        return query(ArticleEntry.COLUMN_QUERY + "=?", new String[]{query});
+    }
+
+    /**
+     * Returns the news stored for every query. A news stored for several queries
+     * is returned once for each of them.
+     */
+    public List<News> loadAll() {
+        return query(null, null);
+    }
+
+    private List<News> query(String selection, String[] selectionArgs) {
+        NewsBatch.Builder newsList = new NewsBatch.Builder();
+        Cursor cursor = null;
+        try {
+            SQLiteDatabase db = mDbHelper.getReadableDatabase();
+            cursor = db.query(ArticleEntry.TABLE_NAME, PROJECTION, selection, selectionArgs,
+                    null, null, ArticleEntry.COLUMN_POSITION);
+            while (cursor.moveToNext()) {
+                newsList.add(cursor.getString(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getLong(3), cursor.getString(4),
+                        cursor.getString(5));
+            }
+        } catch (SQLiteException e) {
+            Log.e(LOG_TAG, "Problem loading stored news", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return newsList.build();
+    }
+
+    /**
+     * Replaces the news stored for the given query.
+     */
+    public void save(String query, List<News> newsList) {
+        long now = System.currentTimeMillis();
+        try {
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete(ArticleEntry.TABLE_NAME, ArticleEntry.COLUMN_QUERY + "=? OR "
+                                + ArticleEntry.COLUMN_STORED_AT + "<?",
+                        new String[]{query, String.valueOf(now - MAX_AGE_MILLIS)});
+                ContentValues values = new ContentValues();
+                for (int i = 0; i < newsList.size(); i++) {
+                    News news = newsList.get(i);
+                    if (news.getUrl() == null) {
+                        continue;
+                    }
+                    values.clear();
+                    values.put(ArticleEntry.COLUMN_QUERY, query);
+                    values.put(ArticleEntry.COLUMN_WEB_URL, news.getUrl());
+                    values.put(ArticleEntry.COLUMN_POSITION, i);
+                    values.put(ArticleEntry.COLUMN_TITLE, news.getTitle());
+                    values.put(ArticleEntry.COLUMN_SECTION, news.getSectionName());
+                    values.put(ArticleEntry.COLUMN_AUTHOR, news.getAuthor());
+                    values.put(ArticleEntry.COLUMN_PUBLISHED_AT, news.getTimeInMillis());
+                    values.put(ArticleEntry.COLUMN_THUMBNAIL_URL, news.getThumbnailUrl());
+                    values.put(ArticleEntry.COLUMN_STORED_AT, now);
+                    // A result listed twice keeps its first position
+                    db.insertWithOnConflict(ArticleEntry.TABLE_NAME, null, values,
+                            SQLiteDatabase.CONFLICT_IGNORE);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Log.e(LOG_TAG, "Problem storing news", e);
+        }
+    }
+}
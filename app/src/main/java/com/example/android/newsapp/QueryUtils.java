@@ -1,16 +1,16 @@
 package com.example.android.newsapp;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.text.TextUtils;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.util.MalformedJsonException;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -18,11 +18,12 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 public final class QueryUtils {
 
@@ -36,10 +37,35 @@ public final class QueryUtils {
     private static final String SECTIONNAME = "sectionName";
     private static final String JSON_KEY_TAGS = "tags";
     private static final String FIELDS = "fields";
+    private static final String CONTENT = "content";
+    private static final String BODY = "body";
     private static final String THUMBNAIL = "thumbnail";
     private static final String WEBPUBLICATIONDATE = "webPublicationDate";
     private static final String WEBURL = "webUrl";
 
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String GZIP = "gzip";
+
+    /**
+     * Number of query URLs whose validators and parsed news are kept for conditional requests
+     */
+    private static final int MAX_CACHED_FEEDS = 8;
+
+    /**
+     * Validators and parsed news of the last successful response, per query URL
+     */
+    private static final Map<String, CachedFeed> sCachedFeeds =
+            new LinkedHashMap<String, CachedFeed>(MAX_CACHED_FEEDS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedFeed> eldest) {
+                    return size() > MAX_CACHED_FEEDS;
+                }
+            };
+
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
      * This class is only meant to hold static variables and methods, which can be accessed
@@ -48,24 +74,69 @@ public final class QueryUtils {
     private QueryUtils() {
     }
 
+    /**
+     * The validators a response came with and the news parsed from it.
+     */
+    private static final class CachedFeed {
+        final String mETag;
+        final String mLastModified;
+        final NewsBatch mNews;
+
+        CachedFeed(String eTag, String lastModified, NewsBatch news) {
+            mETag = eTag;
+            mLastModified = lastModified;
+            mNews = news;
+        }
+    }
+
     /**
      * Query the guardian data set and return a list of {@link News} objects.
+     * Returns null if the request failed.
      */
     public static List<News> fetchNewsData(String requestUrl) {
+        return fetchNewsData(requestUrl, null);
+    }
+
+    /**
+     * Query the guardian data set and return a list of {@link News} objects, which is an
+     * immutable {@link NewsBatch}. Returns null if the request failed. Cancelling the given signal aborts the request
+     * in flight, and this then throws {@link OperationCanceledException}.
+     */
+    public static List<News> fetchNewsData(String requestUrl, CancellationSignal signal) {
+        return fetchNewsData(requestUrl, FetchProfile.METERED, signal);
+    }
+
+    /**
+     * Query the guardian data set with the timeouts of the given {@link FetchProfile}
+     * and return a list of {@link News} objects, as {@link #fetchNewsData(String, CancellationSignal)}.
+     */
+    public static List<News> fetchNewsData(String requestUrl, final FetchProfile profile,
+                                           final CancellationSignal signal) {
 
         // Create URL object
-        URL url = createUrl(requestUrl);
+        final URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
+        // Perform HTTP request to the URL and parse the JSON response as it arrives,
+        // trying again if the network or the server failed
+        List<News> newsList = null;
         try {
-            jsonResponse = makeHttpRequest(url);
+            newsList = Resilience.execute(url.getAuthority(), new Resilience.Request<List<News>>() {
+                @Override
+                public List<News> call(CancellationSignal requestSignal) throws IOException {
+                    return makeHttpRequest(url, profile, requestSignal);
+                }
+            }, Resilience.SEARCH, signal);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
         }
 
-        // Extract relevant fields from the JSON response and create a list of {@link News}s
-        List<News> newsList = extractFeatureFromJson(jsonResponse);
+        // A cancelled request ends with an error or a partial list, neither of which is a result
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
 
         // Return the list of {@link News}s
         return newsList;
@@ -85,37 +156,109 @@ public final class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the news parsed from the response,
+     * or null if the server refused it. Network and server errors are thrown, so the
+     * request can be tried again.
+     * <p>
+     * The response is requested gzipped and, when the same URL was fetched before, made
+     * conditional on the stored ETag / Last-Modified validators. A 304 answer is served from
+     * the news parsed last time. Successful responses are read to the end and not
+     * disconnected, so the connection goes back to the keep-alive pool.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static List<News> makeHttpRequest(URL url, FetchProfile profile,
+                                              CancellationSignal signal) throws IOException {
+        List<News> newsList = null;
 
         // If the URL is null, then return early.
         if (url == null) {
-            return jsonResponse;
+            return newsList;
         }
 
+        String cacheKey = url.toString();
+        CachedFeed cachedFeed = getCachedFeed(cacheKey);
+
         HttpURLConnection urlConnection = null;
         InputStream inputStream = null;
+        boolean reusable = false;
         try {
             urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            if (signal != null) {
+                // Disconnecting from another thread makes the blocked connect or read fail
+                final HttpURLConnection connection = urlConnection;
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        connection.disconnect();
+                    }
+                });
+            }
+            urlConnection.setReadTimeout(profile.readTimeoutMillis);
+            urlConnection.setConnectTimeout(profile.connectTimeoutMillis);
             urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            urlConnection.setRequestProperty(HEADER_ACCEPT_ENCODING, GZIP);
+            if (cachedFeed != null) {
+                if (cachedFeed.mETag != null) {
+                    urlConnection.setRequestProperty(HEADER_IF_NONE_MATCH, cachedFeed.mETag);
+                }
+                if (cachedFeed.mLastModified != null) {
+                    urlConnection.setRequestProperty(HEADER_IF_MODIFIED_SINCE, cachedFeed.mLastModified);
+                }
+            }
+            NewsMetrics metrics = NewsMetrics.getInstance();
+            long start = metrics.begin(NewsMetrics.Stage.CONNECT);
+            try {
+                urlConnection.connect();
+            } finally {
+                metrics.end(NewsMetrics.Stage.CONNECT, start);
+            }
 
+            int responseCode;
+            start = metrics.begin(NewsMetrics.Stage.FIRST_BYTE);
+            try {
+                responseCode = urlConnection.getResponseCode();
+            } finally {
+                metrics.end(NewsMetrics.Stage.FIRST_BYTE, start);
+            }
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // then parse the input stream while it is being downloaded.
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // Count the bytes as they come off the wire, before any decompression
+                CountingInputStream countingStream =
+                        new CountingInputStream(urlConnection.getInputStream());
+                inputStream = countingStream;
+                if (GZIP.equalsIgnoreCase(urlConnection.getContentEncoding())) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+                NewsBatch.Builder builder = new NewsBatch.Builder();
+                start = metrics.begin(NewsMetrics.Stage.BODY);
+                try {
+                    reusable = readNewsFromStream(inputStream, builder);
+                } finally {
+                    metrics.end(NewsMetrics.Stage.BODY, start, countingStream.getCount());
+                }
+                NewsBatch batch = builder.build();
+                newsList = batch;
+                // Only a completely parsed feed is worth revalidating later
+                if (reusable) {
+                    putCachedFeed(cacheKey, new CachedFeed(
+                            urlConnection.getHeaderField(HEADER_ETAG),
+                            urlConnection.getHeaderField(HEADER_LAST_MODIFIED),
+                            batch));
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedFeed != null) {
+                // Nothing changed since the last fetch, so neither download nor parse again.
+                // The batch is immutable, so it is shared rather than copied.
+                newsList = cachedFeed.mNews;
+                reusable = true;
+            } else if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                // The server may do better on another try, a client error would not
+                throw new IOException("Error response code: " + responseCode);
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
             }
-        } catch (IOException e) {
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            if (signal != null) {
+                signal.setOnCancelListener(null);
             }
             if (inputStream != null) {
                 // Closing the input stream could throw an IOException, which is why
@@ -123,151 +266,456 @@ public final class QueryUtils {
                 // could be thrown.
                 inputStream.close();
             }
+            // Disconnecting closes the socket, so it is only done when it can't be reused
+            if (urlConnection != null && !reusable) {
+                urlConnection.disconnect();
+            }
         }
-        return jsonResponse;
+        return newsList;
     }
 
     /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
+     * Adds the news read straight from the JSON response stream to the batch builder, which
+     * interns their repeating values. Results are added one by one while walking
+     * response.results, and fields that are not shown are skipped, so neither the whole body
+     * nor a JSON tree is ever held. Returns true if the whole document was read, false if it
+     * is malformed, in which case the builder keeps what was parsed so far.
+     *
+     * @throws IOException if reading the stream failed, so the request can be tried again
+     *                     rather than a partial page taken for the whole one
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
+    @VisibleForTesting
+    static boolean readNewsFromStream(InputStream inputStream, NewsBatch.Builder newsList)
+            throws IOException {
+        boolean complete = false;
+
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        // A malformed document either throws a MalformedJsonException or, when a value has an
+        // unexpected type, an IllegalStateException. Either way keep what was parsed so far,
+        // as trying again would get the same document. Other IOExceptions are the network's.
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (RESPONSE.equals(reader.nextName())) {
+                    readResponse(reader, newsList);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            // Read up to the end of the body, so the connection can be reused
+            byte[] buffer = new byte[1024];
+            while (inputStream.read(buffer) != -1) {
+                // Discard trailing bytes
             }
+            complete = true;
+        } catch (IllegalStateException e) {
+            Log.e(LOG_TAG, "Problem parsing JSON results", e);
+        } catch (MalformedJsonException e) {
+            Log.e(LOG_TAG, "Problem parsing JSON results", e);
+        } finally {
+            reader.close();
+        }
+        return complete;
+    }
+
+    private static CachedFeed getCachedFeed(String url) {
+        synchronized (sCachedFeeds) {
+            return sCachedFeeds.get(url);
         }
-        return output.toString();
     }
 
     /**
-     * Return a list of {@link News} objects that has been built up from
-     * parsing the given JSON response.
+     * Returns roughly how many bytes of heap the news of the cached feeds hold.
      */
+    static long cachedFeedsSizeInBytes() {
+        long bytes = 0;
+        synchronized (sCachedFeeds) {
+            for (CachedFeed cachedFeed : sCachedFeeds.values()) {
+                bytes += cachedFeed.mNews.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
 
-    private static List<News> extractFeatureFromJson(String newsJSON) {
-        // If the JSON string is empty or null, then return early.
-        if (TextUtils.isEmpty(newsJSON)) {
-            return null;
+    /**
+     * Forgets the least recently used cached feeds until their news hold at most the given
+     * number of bytes. Their next requests are then unconditional.
+     */
+    static void trimCachedFeeds(long maxBytes) {
+        synchronized (sCachedFeeds) {
+            long bytes = cachedFeedsSizeInBytes();
+            Iterator<CachedFeed> iterator = sCachedFeeds.values().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                bytes -= iterator.next().mNews.sizeInBytes();
+                iterator.remove();
+            }
         }
+    }
 
-        // Create an empty ArrayList that we can start adding News to
-        List<News> newsList = new ArrayList<>();
+    private static void putCachedFeed(String url, CachedFeed cachedFeed) {
+        if (cachedFeed.mETag == null && cachedFeed.mLastModified == null) {
+            return;
+        }
+        synchronized (sCachedFeeds) {
+            sCachedFeeds.put(url, cachedFeed);
+        }
+    }
 
-        // Try to parse the JSON response string. If there's a problem with the way the JSON
-        // is formatted, a JSONException exception object will be thrown.
-        // Catch the exception so the app doesn't crash, and print the error message to the logs.
-        try {
+    /**
+     * Reads the "response" object and adds every entry of its "results" array to the batch.
+     */
+    private static void readResponse(JsonReader reader, NewsBatch.Builder newsList) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (RESULTS.equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readNews(reader, newsList);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
 
-            // Create a JSONObject from the JSON response string
+    /**
+     * Reads a single result object into the batch.
+     */
+    private static void readNews(JsonReader reader, NewsBatch.Builder newsList) throws IOException {
+        String title = null;
+        String sectionName = null;
+        String url = null;
+        String date = null;
+        String thumbnailUrl = null;
+        String author = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (WEBTITLE.equals(name)) {
+                title = nextStringOrNull(reader);
+            } else if (SECTIONNAME.equals(name)) {
+                sectionName = nextStringOrNull(reader);
+            } else if (WEBURL.equals(name)) {
+                url = nextStringOrNull(reader);
+            } else if (WEBPUBLICATIONDATE.equals(name)) {
+                date = nextStringOrNull(reader);
+            } else if (FIELDS.equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                // If there is the key called "thumbnail", extract the value for the key called "thumbnail"
+                thumbnailUrl = readStringField(reader, THUMBNAIL);
+            } else if (JSON_KEY_TAGS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                // The author is the "webTitle" of the first tag
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    author = readStringField(reader, WEBTITLE);
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-            JSONObject baseJsonResponse = new JSONObject(newsJSON);
+        newsList.add(title, sectionName, author, Iso8601Parser.parse(date), url, thumbnailUrl);
+    }
 
-            JSONObject baseJsonResults = baseJsonResponse.getJSONObject(RESPONSE);
+    /**
+     * Reads an object and returns the value of one of its string fields, skipping the others.
+     */
+    private static String readStringField(JsonReader reader, String field) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (field.equals(reader.nextName())) {
+                value = nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
 
-            // Extract the JSONArray associated with the key called "features",
-            // which represents a list of features (or News1).
-            JSONArray NewsArray = baseJsonResults.getJSONArray(RESULTS);
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
 
-            // For each  news in the NewsArray, create an {@link News} object
-            for (int i = 0; i < NewsArray.length(); i++) {
-                JSONObject currentNews = NewsArray.getJSONObject(i);
-                String title = currentNews.getString(WEBTITLE);
-                String sectionName = currentNews.getString(SECTIONNAME);
-                String url = currentNews.getString(WEBURL);
-                // For a given news, if it contains the key called "fields", extract JSONObject
-                // associated with the key "fields"
-                // If there is the key called "thumbnail", extract the value for the key called "thumbnail"
-                JSONObject fieldsObject = currentNews.getJSONObject(FIELDS);
-                String thumbnailUrl = fieldsObject.getString(THUMBNAIL);
-                Bitmap thumbnail = fetchingImage(thumbnailUrl);
-
-                // This is the time format from guardian JSON "2017-10-29T06:00:20Z"
-                // will be changed to 29-10-2017 format
-                String date = currentNews.getString(WEBPUBLICATIONDATE);
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-                try {
-                    Date newDate = format.parse(date);
-                    format = new SimpleDateFormat("dd-MM-yyyy" + "\n" + "HH:mm:ss");
-                    date = format.format(newDate);
-                } catch (ParseException e) {
-                    Log.e(LOG_TAG, "Problem with parsing the date format");
-                }
+    /**
+     * Returns the thumbnail at the given URL, looking in memory first, then on disk,
+     * and only downloading it when neither tier of the {@link ThumbnailCache} has it.
+     * Encoded bytes are decoded at the row size by the given {@link BitmapDecoder}.
+     */
+    public static Bitmap fetchingImage(String url, ThumbnailCache cache, BitmapDecoder decoder) {
+        return fetchingImage(url, cache, decoder, false);
+    }
+
+    /**
+     * Returns the thumbnail at the given URL as {@link #fetchingImage(String, ThumbnailCache,
+     * BitmapDecoder)} does, retained for a view, so it must be released once it is not
+     * displayed. It cannot be pooled in between, even if other thumbnails evict it.
+     */
+    public static Bitmap fetchingRetainedImage(String url, ThumbnailCache cache,
+                                               BitmapDecoder decoder) {
+        return fetchingImage(url, cache, decoder, true);
+    }
+
+    private static Bitmap fetchingImage(String url, ThumbnailCache cache, BitmapDecoder decoder,
+                                        boolean retain) {
+        Bitmap mBitmap = retain ? cache.getAndRetainBitmap(url) : cache.getBitmap(url);
+        if (mBitmap != null) {
+            return mBitmap;
+        }
+
+        byte[] data = fetchingImageBytes(url, cache);
+        if (data == null) {
+            return null;
+        }
 
-                String author = null;
-                if (currentNews.has(JSON_KEY_TAGS)) {
-                    // Extract the JSONArray associated with the key called "tags"
-                    JSONArray tagsArray = currentNews.getJSONArray(JSON_KEY_TAGS);
-                    if (tagsArray.length() != 0) {
-                        // Extract the first JSONObject in the tagsArray
-                        JSONObject firstTagsItem = tagsArray.getJSONObject(0);
-                        // Extract the value for the key called "webTitle"
-                        author = firstTagsItem.getString(WEBTITLE);
+        NewsMetrics metrics = NewsMetrics.getInstance();
+        long start = metrics.begin(NewsMetrics.Stage.IMAGE_DECODE);
+        try {
+            mBitmap = decoder.decode(data);
+        } finally {
+            metrics.end(NewsMetrics.Stage.IMAGE_DECODE, start, data.length);
+        }
+        if (mBitmap == null) {
+            return null;
+        }
+        if (retain) {
+            cache.putAndRetainBitmap(url, mBitmap);
+        } else {
+            cache.putBitmap(url, mBitmap);
+        }
+        return mBitmap;
+    }
+
+    /**
+     * Returns the encoded bytes of a thumbnail from the disk cache, or downloads and caches
+     * them when they are not there. Returns null if the thumbnail could not be downloaded.
+     */
+    public static byte[] fetchingImageBytes(String url, ThumbnailCache cache) {
+        byte[] data = cache.getBytes(url);
+        if (data == null) {
+            URL mUrl = createUrl(url);
+            if (mUrl == null) {
+                return null;
+            }
+            final URL imageUrl = mUrl;
+            try {
+                data = Resilience.execute(mUrl.getAuthority(), new Resilience.Request<byte[]>() {
+                    @Override
+                    public byte[] call(CancellationSignal requestSignal) throws IOException {
+                        return makeHTTPConnection(imageUrl, requestSignal);
                     }
+                }, Resilience.IMAGES, null);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Making connection for image", e);
+            }
+            if (data == null) {
+                return null;
+            }
+            cache.putBytes(url, data);
+        }
+        return data;
+    }
+
+    /**
+     * Fetches the HTML body of a single article from the content API URL of the article,
+     * asked with show-fields=body. Returns null if it could not be fetched.
+     *
+     * @throws OperationCanceledException if the signal was cancelled while fetching
+     */
+    public static String fetchArticleBody(String requestUrl, final FetchProfile profile,
+                                          final CancellationSignal signal) {
+        final URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
+        String body = null;
+        try {
+            body = Resilience.execute(url.getAuthority(), new Resilience.Request<String>() {
+                @Override
+                public String call(CancellationSignal requestSignal) throws IOException {
+                    return makeArticleRequest(url, profile, requestSignal);
                 }
+            }, Resilience.SEARCH, signal);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem fetching the article body.", e);
+        }
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+        return body;
+    }
 
-                News news = new News(title, sectionName, author, "Date:" + "\n" + date, url, thumbnail);
-                newsList.add(news);
+    private static String makeArticleRequest(URL url, FetchProfile profile,
+                                             CancellationSignal signal) throws IOException {
+        HttpURLConnection urlConnection = null;
+        InputStream inputStream = null;
+        try {
+            urlConnection = (HttpURLConnection) url.openConnection();
+            if (signal != null) {
+                final HttpURLConnection connection = urlConnection;
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        connection.disconnect();
+                    }
+                });
             }
+            urlConnection.setReadTimeout(profile.readTimeoutMillis);
+            urlConnection.setConnectTimeout(profile.connectTimeoutMillis);
+            urlConnection.setRequestMethod("GET");
+            urlConnection.setRequestProperty(HEADER_ACCEPT_ENCODING, GZIP);
+            urlConnection.connect();
 
-        } catch (JSONException e) {
-            // If an error is thrown when executing any of the above statements in the "try" block,
-            // catch the exception here, so the app doesn't crash. Print a log message
-            // with the message from the exception.
-            Log.e("QueryUtils", "Problem parsing JSON results", e);
+            int responseCode = urlConnection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                inputStream = urlConnection.getInputStream();
+                if (GZIP.equalsIgnoreCase(urlConnection.getContentEncoding())) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+                return readArticleBody(new BufferedInputStream(inputStream));
+            } else if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                throw new IOException("Error response code: " + responseCode);
+            } else {
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
+                return null;
+            }
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
         }
-
-        // Return the list of news
-        return newsList;
     }
 
-    public static Bitmap fetchingImage(String url) {
-        URL mUrl = createUrl(url);
-        Bitmap mBitmap = null;
+    /**
+     * Returns the response.content.fields.body of a single item response, or null if it has none.
+     */
+    private static String readArticleBody(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
         try {
-            mBitmap = makeHTTPConnection(mUrl);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Making connection for image", e);
+            return readObjectPath(reader, RESPONSE, CONTENT, FIELDS, BODY);
+        } catch (IllegalStateException e) {
+            Log.e(LOG_TAG, "Problem parsing the article", e);
+            return null;
+        } finally {
+            reader.close();
         }
-        return mBitmap;
+    }
+
+    // Descends the nested objects of the given names and returns the string at the last one
+    private static String readObjectPath(JsonReader reader, String... names) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (names[0].equals(reader.nextName())) {
+                if (names.length == 1) {
+                    value = reader.nextString();
+                } else {
+                    value = readObjectPath(reader, Arrays.copyOfRange(names, 1, names.length));
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
     }
 
     /**
-     * Making a HTTP connection for thumbnails
+     * Making a HTTP connection for thumbnails and returning the encoded image bytes,
+     * or null if the server refused the request. Network and server errors are thrown, as is
+     * the failure of a connection disconnected by cancelling the signal, which may be null.
      */
-    public static Bitmap makeHTTPConnection(URL url) throws IOException {
+    public static byte[] makeHTTPConnection(URL url, CancellationSignal signal)
+            throws IOException {
 
-        Bitmap mBitmap = null;
+        byte[] data = null;
 
         //Creating Http Connection object and inputstream object
-        HttpURLConnection urlConnection;
+        HttpURLConnection urlConnection = null;
         InputStream inputStream = null;
         try {
             urlConnection = (HttpURLConnection) url.openConnection();
+            if (signal != null) {
+                // Disconnecting from another thread makes the blocked connect or read fail
+                final HttpURLConnection connection = urlConnection;
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        connection.disconnect();
+                    }
+                });
+            }
             urlConnection.setReadTimeout(2000);
             urlConnection.setConnectTimeout(2500);
             urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            NewsMetrics metrics = NewsMetrics.getInstance();
+            long start = metrics.begin(NewsMetrics.Stage.IMAGE_CONNECT);
+            try {
+                urlConnection.connect();
+            } finally {
+                metrics.end(NewsMetrics.Stage.IMAGE_CONNECT, start);
+            }
+
+            int responseCode;
+            start = metrics.begin(NewsMetrics.Stage.IMAGE_FIRST_BYTE);
+            try {
+                responseCode = urlConnection.getResponseCode();
+            } finally {
+                metrics.end(NewsMetrics.Stage.IMAGE_FIRST_BYTE, start);
+            }
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == urlConnection.HTTP_OK) {
-                inputStream = urlConnection.getInputStream();
-                BufferedInputStream bInputStream = new BufferedInputStream(inputStream);
-                mBitmap = BitmapFactory.decodeStream(bInputStream);
-                return mBitmap;
+            // then read the input stream into memory so it can be cached and decoded.
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                inputStream = new BufferedInputStream(urlConnection.getInputStream());
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                start = metrics.begin(NewsMetrics.Stage.IMAGE_BODY);
+                try {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        output.write(buffer, 0, read);
+                    }
+                } finally {
+                    metrics.end(NewsMetrics.Stage.IMAGE_BODY, start, output.size());
+                }
+                data = output.toByteArray();
+            } else if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                throw new IOException("Error response code: " + responseCode);
             } else {
-                Log.e("LOG_TAG", "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
             }
 
-        } catch (IOException e) {
-            Log.e("LOG_TAG", "Problem retrieving results.", e);
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
         }
 
-        return mBitmap;
+        return data;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,437 @@
+package com.example.android.newsapp;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the requests to a host with retries, hedging and a circuit breaker, so a slow or
+ * failing host costs a bounded time instead of stalling the rows waiting on it.
+ * <p>
+ * A request that fails with an {@link IOException} is retried after an exponential backoff
+ * with full jitter, so the clients failing together do not retry together. A request that
+ * returns, even null, is done. Once a host failed {@link CircuitBreaker#FAILURE_THRESHOLD}
+ * times in a row its requests fail at once, until a single trial request, let through after
+ * {@link CircuitBreaker#OPEN_MILLIS}, succeeds. With hedging, a second copy of a request still
+ * running after the usual slow latency of its kind is sent and the first answer wins, while
+ * the other copy is cancelled through its {@link CancellationSignal}. A request cancelled through
+ * its signal or by interrupting its thread is given up at once and not held against the host.
+ */
+public final class Resilience {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = Resilience.class.getSimpleName();
+
+    /**
+     * Retries of the search, without hedging since every copy counts against the API key
+     */
+    public static final Policy SEARCH = new Policy(3, 500, 4000, null);
+
+    /**
+     * Retries of the thumbnails, hedged after the 90th percentile of an image download
+     */
+    public static final Policy IMAGES = new Policy(2, 200, 1000, new NewsMetrics.Stage[]{
+            NewsMetrics.Stage.IMAGE_CONNECT, NewsMetrics.Stage.IMAGE_FIRST_BYTE,
+            NewsMetrics.Stage.IMAGE_BODY});
+
+    /**
+     * Samples needed before a percentile is trusted for hedging
+     */
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    /**
+     * Shortest wait before hedging, below which a second copy is mostly wasted
+     */
+    private static final long MIN_HEDGE_MILLIS = 100;
+
+    /**
+     * How often a backoff checks whether its request was cancelled
+     */
+    private static final long CANCEL_POLL_MILLIS = 50;
+
+    /**
+     * Most copies running on the hedge threads at once; past it requests are not hedged
+     */
+    private static final int MAX_HEDGE_THREADS = 8;
+
+    /**
+     * How long an idle hedge thread is kept
+     */
+    private static final long HEDGE_KEEP_ALIVE_SECONDS = 30;
+
+    private static final Random sRandom = new Random();
+
+    // Host -> its breaker
+    private static final Map<String, CircuitBreaker> sBreakers = new HashMap<>();
+
+    // No queue, as a copy that waits for a thread is no faster than the one it hedges
+    private static final ThreadPoolExecutor sHedgeExecutor = new ThreadPoolExecutor(
+            0, MAX_HEDGE_THREADS, HEDGE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, LOG_TAG + " #" + mCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Create a private constructor because no one should ever create a {@link Resilience} object.
+     */
+    private Resilience() {
+    }
+
+    /**
+     * Runs the request to the given host under the policy and returns its result.
+     *
+     * @param host the host and port the request goes to, whose breaker it uses
+     * @throws IOException                if the last attempt failed, or the host is unhealthy
+     * @throws OperationCanceledException if the signal was cancelled
+     */
+    public static <T> T execute(String host, Request<T> request, Policy policy,
+                                CancellationSignal signal) throws IOException {
+        CircuitBreaker breaker = getBreaker(host);
+        for (int attempt = 0; ; attempt++) {
+            // A load cancelled by interrupting its thread is neither sent, retried nor hedged
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException();
+            }
+            if (!breaker.allowRequest()) {
+                throw new CircuitOpenException(host);
+            }
+            boolean reported = false;
+            try {
+                T result = policy.hedges()
+                        ? callHedged(request, policy.hedgeDelayMillis(), signal)
+                        : request.call(signal);
+                breaker.onSuccess();
+                reported = true;
+                return result;
+            } catch (IOException e) {
+                reported = true;
+                // A cancelled request fails too, but that says nothing about the host
+                if (signal != null && signal.isCanceled()) {
+                    breaker.onCancel();
+                    throw new OperationCanceledException();
+                }
+                if (isInterruption(e)) {
+                    breaker.onCancel();
+                    throw e;
+                }
+                breaker.onFailure();
+                if (attempt + 1 >= policy.maxAttempts) {
+                    throw e;
+                }
+                long delay = policy.backoffMillis(attempt);
+                Log.w(LOG_TAG, "Retrying " + host + " in " + delay + " ms: " + e);
+                sleep(delay, signal);
+            } finally {
+                // Nor does a request that threw anything else, but it must not keep the trial
+                if (!reported) {
+                    breaker.onCancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the request failed because its thread was interrupted, as the thumbnail
+     * loads of recycled rows are, rather than because of the host. A timeout is an
+     * {@link InterruptedIOException} as well, but one the host is to blame for.
+     */
+    static boolean isInterruption(IOException e) {
+        return Thread.currentThread().isInterrupted()
+                || e instanceof ClosedByInterruptException
+                || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+    }
+
+    private static synchronized CircuitBreaker getBreaker(String host) {
+        CircuitBreaker breaker = sBreakers.get(host);
+        if (breaker == null) {
+            breaker = new CircuitBreaker();
+            sBreakers.put(host, breaker);
+        }
+        return breaker;
+    }
+
+    /**
+     * Runs the request, sends a second copy of it if no answer came within the delay,
+     * and returns the first result. The request fails only if every copy failed. Each copy
+     * has a signal of its own, cancelled once it lost or the given signal was cancelled,
+     * since interrupting its thread would not stop the blocking I/O of a connection.
+     */
+    private static <T> T callHedged(Request<T> request, long hedgeAfterMillis,
+                                    CancellationSignal signal) throws IOException {
+        CompletionService<T> completion = new ExecutorCompletionService<>(sHedgeExecutor);
+        List<Future<T>> futures = new ArrayList<>(2);
+        final List<CancellationSignal> copySignals = new ArrayList<>(2);
+        if (signal != null) {
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    cancelAll(copySignals);
+                }
+            });
+        }
+        try {
+            Future<T> first = submitCopy(completion, request, copySignals);
+            if (first == null) {
+                // Every hedge thread is busy, so the request runs unhedged on this one
+                return request.call(signal);
+            }
+            futures.add(first);
+            Future<T> done = completion.poll(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                Future<T> second = submitCopy(completion, request, copySignals);
+                if (second != null) {
+                    futures.add(second);
+                }
+                done = completion.take();
+            }
+            try {
+                return done.get();
+            } catch (ExecutionException e) {
+                if (futures.size() == 1) {
+                    throw e;
+                }
+                // The other copy may still answer
+                return completion.take().get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            // The copy that lost is not waited for, its connection is closed under it
+            cancelAll(copySignals);
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Submits a copy of the request with a signal of its own, or returns null if no hedge
+     * thread is free.
+     */
+    private static <T> Future<T> submitCopy(CompletionService<T> completion,
+                                            final Request<T> request,
+                                            List<CancellationSignal> copySignals) {
+        final CancellationSignal copySignal = new CancellationSignal();
+        synchronized (copySignals) {
+            copySignals.add(copySignal);
+        }
+        try {
+            return completion.submit(new Callable<T>() {
+                @Override
+                public T call() throws IOException {
+                    return request.call(copySignal);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (copySignals) {
+                copySignals.remove(copySignal);
+            }
+            return null;
+        }
+    }
+
+    private static void cancelAll(List<CancellationSignal> signals) {
+        synchronized (signals) {
+            for (CancellationSignal signal : signals) {
+                signal.cancel();
+            }
+        }
+    }
+
+    private static void sleep(long millis, CancellationSignal signal) throws IOException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        try {
+            long left;
+            while ((left = end - System.nanoTime()) > 0) {
+                if (signal != null) {
+                    signal.throwIfCanceled();
+                }
+                Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(left) + 1, CANCEL_POLL_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+    }
+
+    /**
+     * A request run by {@link #execute}, which disconnects once the given signal is cancelled.
+     * A hedged request gets a signal of its own for each copy.
+     */
+    public interface Request<T> {
+        /**
+         * Sends the request and returns its result, even null, or throws if it failed.
+         */
+        T call(CancellationSignal signal) throws IOException;
+    }
+
+    /**
+     * How many times a kind of request is tried, how long to back off between tries,
+     * and which stages of the {@link NewsMetrics} time it for hedging.
+     */
+    public static final class Policy {
+        public final int maxAttempts;
+        public final long baseDelayMillis;
+        public final long maxDelayMillis;
+        // Null for no hedging
+        private final NewsMetrics.Stage[] mHedgeStages;
+
+        public Policy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                      NewsMetrics.Stage[] hedgeStages) {
+            this.maxAttempts = maxAttempts;
+            this.baseDelayMillis = baseDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+            mHedgeStages = hedgeStages;
+        }
+
+        /**
+         * Returns a random delay up to the exponential backoff of the given attempt.
+         */
+        long backoffMillis(int attempt) {
+            long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 16));
+            return (long) (sRandom.nextDouble() * ceiling);
+        }
+
+        boolean hedges() {
+            return hedgeDelayMillis() > 0;
+        }
+
+        /**
+         * Returns the sum of the 90th percentiles of the stages, or 0 while they were not
+         * timed often enough to tell a slow request from a usual one.
+         */
+        long hedgeDelayMillis() {
+            if (mHedgeStages == null) {
+                return 0;
+            }
+            double millis = 0;
+            for (NewsMetrics.Stage stage : mHedgeStages) {
+                NewsMetrics.Summary summary = NewsMetrics.getInstance().getSummary(stage);
+                if (summary.count < MIN_HEDGE_SAMPLES) {
+                    return 0;
+                }
+                millis += summary.p90Millis;
+            }
+            return Math.max(MIN_HEDGE_MILLIS, (long) Math.ceil(millis));
+        }
+    }
+
+    /**
+     * Failure of a request not sent because its host is unhealthy.
+     */
+    public static final class CircuitOpenException extends IOException {
+        CircuitOpenException(String host) {
+            super("Circuit open for " + host);
+        }
+    }
+
+    /**
+     * Health of one host. Closed, it lets every request through; open, after too many
+     * failures in a row, it lets none; once open long enough, it lets a single trial through,
+     * whose outcome closes it or opens it again.
+     */
+    static final class CircuitBreaker {
+
+        static final int FAILURE_THRESHOLD = 5;
+
+        static final long OPEN_MILLIS = 30000;
+
+        private final long mOpenNanos;
+        private int mFailures;
+        // System.nanoTime() when it opened, meaningless while closed
+        private long mOpenedAt;
+        private boolean mOpen;
+        private boolean mTrialInFlight;
+
+        CircuitBreaker() {
+            this(OPEN_MILLIS);
+        }
+
+        /**
+         * Constructs a breaker that stays open for the given time before letting a trial through.
+         */
+        CircuitBreaker(long openMillis) {
+            mOpenNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        }
+
+        synchronized boolean allowRequest() {
+            if (!mOpen) {
+                return true;
+            }
+            if (mTrialInFlight || System.nanoTime() - mOpenedAt < mOpenNanos) {
+                return false;
+            }
+            mTrialInFlight = true;
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            mFailures = 0;
+            mOpen = false;
+            mTrialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            mFailures++;
+            if (mTrialInFlight || mFailures >= FAILURE_THRESHOLD) {
+                if (!mOpen) {
+                    Log.w(LOG_TAG, "Circuit opened after " + mFailures + " failures");
+                }
+                mOpen = true;
+                mOpenedAt = System.nanoTime();
+            }
+            mTrialInFlight = false;
+        }
+
+        synchronized void onCancel() {
+            // A cancelled or broken trial tells nothing, the next request is the trial
+            mTrialInFlight = false;
+        }
+    }
+}
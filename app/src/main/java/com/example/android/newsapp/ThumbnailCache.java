@@ -0,0 +1,279 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.LruCache;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two tier thumbnail cache: decoded bitmaps in a memory LRU bounded by their byte size,
+ * backed by a {@link DiskLruStore} of the encoded bytes in the app cache directory.
+ * Bitmaps that leave the memory tier go to a {@link BitmapPool} once no row displays them.
+ */
+public final class ThumbnailCache {
+
+    /**
+     * Name of the directory inside the app cache directory holding the thumbnails
+     */
+    private static final String DISK_CACHE_DIR = "thumbnails";
+
+    /**
+     * Maximum size of the encoded thumbnails kept on disk
+     */
+    private static final long DISK_CACHE_BYTES = 10 * 1024 * 1024;
+
+    /**
+     * Fraction of the memory tier size given to the bitmap pool
+     */
+    private static final int POOL_DIVISOR = 4;
+
+    private static ThumbnailCache sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final DiskLruStore mDiskCache;
+    private final BitmapPool mPool;
+
+    // Bitmap -> number of views displaying it
+    private final Map<Bitmap, Integer> mDisplayCounts = new HashMap<>();
+    // Bitmaps evicted from memory while still displayed
+    private final Set<Bitmap> mEvictedWhileDisplayed = new HashSet<>();
+    // URL -> encoded thumbnail handed over by a feed snapshot, kept until it is decoded
+    private final Map<String, byte[]> mSeededBytes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new {@link ThumbnailCache}.
+     *
+     * @param memoryBytes maximum byte size of the decoded bitmaps kept in memory
+     * @param diskCache   store of the encoded thumbnails
+     * @param pool        where bitmaps leaving the memory tier are recycled
+     */
+    public ThumbnailCache(int memoryBytes, DiskLruStore diskCache, BitmapPool pool) {
+        mMemoryCache = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                // Counted as the pool counts it, as a reused bitmap may be larger than its pixels
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    return bitmap.getAllocationByteCount();
+                }
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String url, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    recycle(oldValue);
+                }
+            }
+        };
+        mDiskCache = diskCache;
+        mPool = pool;
+    }
+
+    /**
+     * Returns the process wide cache, stored in the cache directory of the given context.
+     */
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if (sInstance == null) {
+            int memoryBytes = MemoryGovernor.getInstance(context).getThumbnailBudgetBytes();
+            File directory = new File(context.getApplicationContext().getCacheDir(), DISK_CACHE_DIR);
+            sInstance = new ThumbnailCache(memoryBytes,
+                    new DiskLruStore(directory, DISK_CACHE_BYTES),
+                    new BitmapPool(memoryBytes / POOL_DIVISOR));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the decoded thumbnail for the given URL if it is in memory, otherwise null.
+     */
+    public Bitmap getBitmap(String url) {
+        return mMemoryCache.get(url);
+    }
+
+    public void putBitmap(String url, Bitmap bitmap) {
+        mMemoryCache.put(url, bitmap);
+        mSeededBytes.remove(url);
+    }
+
+    /**
+     * Returns the decoded thumbnail for the given URL if it is in memory, retained for a view
+     * as by {@link #retain(Bitmap)}, otherwise null. The bitmap cannot be evicted into the
+     * pool between the lookup and the retain, so it must be released once it is not displayed.
+     */
+    public Bitmap getAndRetainBitmap(String url) {
+        // An evicted bitmap leaves the memory tier before it is recycled under this lock
+        synchronized (mDisplayCounts) {
+            Bitmap bitmap = mMemoryCache.get(url);
+            if (bitmap != null) {
+                retain(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Puts the decoded thumbnail for the given URL in memory, retained for a view as by
+     * {@link #retain(Bitmap)}, so a put from another thread cannot evict it into the pool
+     * before it is displayed.
+     */
+    public void putAndRetainBitmap(String url, Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            retain(bitmap);
+            putBitmap(url, bitmap);
+        }
+    }
+
+    /**
+     * Returns the encoded thumbnail for the given URL if it was seeded or is on disk,
+     * otherwise null. This reads from disk, so it must not be called on the main thread.
+     */
+    public byte[] getBytes(String url) {
+        byte[] seeded = mSeededBytes.get(url);
+        if (seeded != null) {
+            return seeded;
+        }
+        return mDiskCache.get(url);
+    }
+
+    public void putBytes(String url, byte[] data) {
+        mDiskCache.put(url, data);
+    }
+
+    /**
+     * Hands over an encoded thumbnail that is already in memory, so its first
+     * {@link #getBytes(String)} skips the disk. It is dropped once its bitmap is put.
+     */
+    public void seedBytes(String url, byte[] data) {
+        mSeededBytes.put(url, data);
+    }
+
+    /**
+     * Drops the seeded thumbnails not decoded yet, which are then read from disk.
+     */
+    public void clearSeededBytes() {
+        mSeededBytes.clear();
+    }
+
+    /**
+     * Evicts decoded thumbnails, least recently used first, until at most the given number
+     * of bytes are in memory. The memory tier grows back to its maximum size as thumbnails
+     * are put again.
+     */
+    public void trimMemory(int maxBytes) {
+        mMemoryCache.trimToSize(maxBytes);
+    }
+
+    /**
+     * Returns the byte size of the decoded thumbnails in memory.
+     */
+    public int memorySize() {
+        return mMemoryCache.size();
+    }
+
+    /**
+     * Returns the maximum byte size of the decoded thumbnails in memory.
+     */
+    public int memoryMaxSize() {
+        return mMemoryCache.maxSize();
+    }
+
+    /**
+     * Returns the byte size of the seeded thumbnails not decoded yet.
+     */
+    public long seededSize() {
+        long bytes = 0;
+        for (byte[] data : mSeededBytes.values()) {
+            bytes += data.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the pool that bitmaps leaving this cache are recycled into.
+     */
+    public BitmapPool getBitmapPool() {
+        return mPool;
+    }
+
+    /**
+     * Records that a view started displaying the given bitmap, so it is not recycled under it.
+     */
+    public void retain(Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            Integer count = mDisplayCounts.get(bitmap);
+            mDisplayCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Records that a view stopped displaying the given bitmap.
+     */
+    public void release(Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            Integer count = mDisplayCounts.get(bitmap);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mDisplayCounts.put(bitmap, count - 1);
+                return;
+            }
+            mDisplayCounts.remove(bitmap);
+            if (!mEvictedWhileDisplayed.remove(bitmap)) {
+                return;
+            }
+        }
+        mPool.put(bitmap);
+    }
+
+    private void recycle(Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            if (mDisplayCounts.containsKey(bitmap)) {
+                mEvictedWhileDisplayed.add(bitmap);
+                return;
+            }
+        }
+        mPool.put(bitmap);
+    }
+
+    public int memoryHitCount() {
+        return mMemoryCache.hitCount();
+    }
+
+    public int memoryMissCount() {
+        return mMemoryCache.missCount();
+    }
+
+    public int memoryEvictionCount() {
+        return mMemoryCache.evictionCount();
+    }
+
+    public int diskHitCount() {
+        return mDiskCache.hitCount();
+    }
+
+    public int diskMissCount() {
+        return mDiskCache.missCount();
+    }
+
+    public int diskEvictionCount() {
+        return mDiskCache.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "ThumbnailCache{memory=" + mMemoryCache.size() + "/" + mMemoryCache.maxSize()
+                + " bytes, hits=" + memoryHitCount() + ", misses=" + memoryMissCount()
+                + ", evictions=" + memoryEvictionCount()
+                + "; disk=" + mDiskCache.size() + " bytes, hits=" + diskHitCount()
+                + ", misses=" + diskMissCount() + ", evictions=" + diskEvictionCount()
+                + "; pool=" + mPool.size() + " bytes}";
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Downloads news thumbnails on a bounded pool of worker threads, so the images of a
+ * whole page are fetched in parallel instead of one after another.
+ * <p>
+ * Work is not taken in the order it was queued. Each piece of work is tied to the list
+ * position of its row, and an idle worker takes the one nearest to the rows on screen, as
+ * last told by {@link #setVisibleRange(int, int)}, so visible rows jump the queue. Work that
+ * scrolled more than {@link #DROP_SCREENS} screens away is dropped, and so is the farthest
+ * work when the queue is full.
+ */
+public final class ThumbnailFetcher {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ThumbnailFetcher.class.getSimpleName();
+
+    /**
+     * Number of thumbnails downloaded at the same time by the shared instance
+     */
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    /**
+     * Number of thumbnails downloaded at the same time on a low RAM device, where every
+     * download in flight holds its bytes and its decoded bitmap
+     */
+    public static final int LOW_RAM_CONCURRENCY = 2;
+
+    /**
+     * Position of work not tied to a row, which is taken in the order it was queued
+     */
+    public static final int NO_POSITION = -1;
+
+    /**
+     * Most pieces of work waiting for a worker
+     */
+    private static final int MAX_QUEUED = 64;
+
+    /**
+     * Screens past the visible rows beyond which queued work is dropped
+     */
+    private static final int DROP_SCREENS = 2;
+
+    /**
+     * Work that is told when it is cancelled or dropped, which may happen before it ever runs,
+     * so whatever it holds on to for its run is given back.
+     */
+    public interface CancellableWork extends Runnable {
+        /**
+         * Called on the thread that cancelled or dropped the work.
+         */
+        void onCancelled();
+    }
+
+    private static ThumbnailFetcher sInstance;
+
+    private final Object mLock = new Object();
+
+    // Guarded by mLock
+    private final List<Task> mQueue = new ArrayList<>();
+    private int mFirstVisible = NO_POSITION;
+    private int mLastVisible = NO_POSITION;
+    private long mSequence;
+    private boolean mPaused;
+    private boolean mShutdown;
+
+    /**
+     * Constructs a new {@link ThumbnailFetcher}.
+     *
+     * @param concurrency maximum number of thumbnails downloaded at the same time
+     */
+    public ThumbnailFetcher(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1: " + concurrency);
+        }
+        for (int i = 1; i <= concurrency; i++) {
+            Thread thread = new Thread(new Worker(), LOG_TAG + " #" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns the process wide fetcher, running as many workers as suit the device.
+     *
+     * @param lowRamDevice whether the device is a low RAM one, only read on the first call
+     */
+    public static synchronized ThumbnailFetcher getInstance(boolean lowRamDevice) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailFetcher(
+                    lowRamDevice ? LOW_RAM_CONCURRENCY : DEFAULT_CONCURRENCY);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Queues a piece of thumbnail work for the row at the given position and returns
+     * immediately. The work may be dropped before it runs, as if it was cancelled, which
+     * {@link CancellableWork} is told of.
+     */
+    public Future<?> submit(Runnable task, int position) {
+        Task dropped = null;
+        Task queued = new Task(task, position);
+        synchronized (mLock) {
+            if (mShutdown) {
+                throw new IllegalStateException("Fetcher is shut down");
+            }
+            queued.mSequence = mSequence++;
+            mQueue.add(queued);
+            if (mQueue.size() > MAX_QUEUED) {
+                dropped = mQueue.remove(indexOfLast());
+            }
+            mLock.notify();
+        }
+        if (dropped != null) {
+            dropped.cancel(false);
+        }
+        return queued;
+    }
+
+    /**
+     * Tells which rows are on screen, both inclusive. Must be called as the list scrolls.
+     */
+    public void setVisibleRange(int first, int last) {
+        List<Task> dropped = new ArrayList<>();
+        synchronized (mLock) {
+            if (first == mFirstVisible && last == mLastVisible) {
+                return;
+            }
+            mFirstVisible = first;
+            mLastVisible = last;
+            if (first == NO_POSITION) {
+                return;
+            }
+            int dropDistance = DROP_SCREENS * (last - first + 1);
+            for (int i = mQueue.size() - 1; i >= 0; i--) {
+                if (distance(mQueue.get(i)) > dropDistance) {
+                    dropped.add(mQueue.remove(i));
+                }
+            }
+        }
+        for (Task task : dropped) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Holds back the queued work while paused, as during a fling, when rows go by too fast
+     * to be worth their downloads and decodes. Downloads already running are completed.
+     */
+    public void setPaused(boolean paused) {
+        synchronized (mLock) {
+            mPaused = paused;
+            if (!paused) {
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops the workers. Downloads that were already queued are still completed.
+     */
+    public void shutdown() {
+        synchronized (mLock) {
+            mShutdown = true;
+            mLock.notifyAll();
+        }
+    }
+
+    // Rows on screen are at distance 0, and so is work not tied to a row
+    private int distance(Task task) {
+        if (task.mPosition == NO_POSITION || mFirstVisible == NO_POSITION) {
+            return 0;
+        }
+        if (task.mPosition < mFirstVisible) {
+            return mFirstVisible - task.mPosition;
+        }
+        return task.mPosition > mLastVisible ? task.mPosition - mLastVisible : 0;
+    }
+
+    // Nearest to the screen first, then in queue order
+    private int compare(Task a, Task b) {
+        int distanceA = distance(a);
+        int distanceB = distance(b);
+        if (distanceA != distanceB) {
+            return distanceA < distanceB ? -1 : 1;
+        }
+        return a.mSequence < b.mSequence ? -1 : (a.mSequence == b.mSequence ? 0 : 1);
+    }
+
+    private int indexOfFirst() {
+        int best = 0;
+        for (int i = 1; i < mQueue.size(); i++) {
+            if (compare(mQueue.get(i), mQueue.get(best)) < 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int indexOfLast() {
+        int worst = 0;
+        for (int i = 1; i < mQueue.size(); i++) {
+            if (compare(mQueue.get(i), mQueue.get(worst)) > 0) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    private Task take() throws InterruptedException {
+        synchronized (mLock) {
+            while (mQueue.isEmpty() || (mPaused && !mShutdown)) {
+                if (mShutdown) {
+                    return null;
+                }
+                mLock.wait();
+            }
+            return mQueue.remove(indexOfFirst());
+        }
+    }
+
+    private void remove(Task task) {
+        synchronized (mLock) {
+            mQueue.remove(task);
+        }
+    }
+
+    /**
+     * Work queued for the row at a position. Cancelled while queued, it leaves the queue.
+     */
+    private final class Task extends FutureTask<Void> {
+        private final Runnable mRunnable;
+        private final int mPosition;
+        // Guarded by mLock, breaks ties in queue order
+        private long mSequence;
+
+        Task(Runnable runnable, int position) {
+            super(runnable, null);
+            mRunnable = runnable;
+            mPosition = position;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                remove(this);
+                if (mRunnable instanceof CancellableWork) {
+                    ((CancellableWork) mRunnable).onCancelled();
+                }
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        @Override
+        public void run() {
+            try {
+                Task task;
+                while ((task = take()) != null) {
+                    task.run();
+                    // A cancel(true) may have interrupted the download, not the next one
+                    Thread.interrupted();
+                }
+            } catch (InterruptedException e) {
+                // Nothing interrupts the workers but the process going away
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.newsapp;
+
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Steers the thumbnail work of the news list by how it is scrolled.
+ * <p>
+ * It tells the {@link NewsAdapter} which rows are on screen, so their thumbnails are loaded
+ * first. While a fling goes by faster than {@link #PAUSE_ROWS_PER_SECOND}, no new download or
+ * decode is started, as those rows are gone before their thumbnail would be; the work resumes
+ * once the fling slows down or stops. Otherwise, the thumbnails of the rows about to scroll
+ * into view are prefetched, as many as the list scrolls by in {@link #PREFETCH_SECONDS}.
+ */
+public final class ThumbnailScrollListener extends RecyclerView.OnScrollListener {
+
+    /**
+     * Fling speed above which thumbnail work is paused
+     */
+    private static final float PAUSE_ROWS_PER_SECOND = 20f;
+
+    /**
+     * How far ahead of the scroll the thumbnails are prefetched
+     */
+    private static final float PREFETCH_SECONDS = 0.5f;
+
+    /**
+     * Rows prefetched ahead of a slow scroll, or of a list at rest
+     */
+    private static final int MIN_PREFETCH_ROWS = 2;
+
+    /**
+     * Rows prefetched ahead of a fast scroll
+     */
+    private static final int MAX_PREFETCH_ROWS = 10;
+
+    /**
+     * Weight of the latest scroll step in the measured velocity
+     */
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private final LinearLayoutManager mLayoutManager;
+    private final NewsAdapter mAdapter;
+
+    // Rows per second, positive towards the end of the list, and when it was last measured
+    private float mRowsPerSecond;
+    private long mLastScrollMillis;
+    // 1 towards the end of the list, -1 towards its start
+    private int mDirection = 1;
+    private boolean mPaused;
+
+    // Last rows prefetched, so the same ones are not asked for on every frame
+    private int mPrefetchedFirst = RecyclerView.NO_POSITION;
+    private int mPrefetchedLast = RecyclerView.NO_POSITION;
+
+    public ThumbnailScrollListener(LinearLayoutManager layoutManager, NewsAdapter adapter) {
+        mLayoutManager = layoutManager;
+        mAdapter = adapter;
+        // The fetcher is shared, and a list destroyed mid-fling never resumed it
+        mAdapter.setThumbnailsPaused(false);
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            mRowsPerSecond = 0;
+            mLastScrollMillis = 0;
+            setPaused(false);
+            prefetch(MIN_PREFETCH_ROWS);
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        mAdapter.setVisibleRange(mLayoutManager.findFirstVisibleItemPosition(),
+                mLayoutManager.findLastVisibleItemPosition());
+        if (dy == 0) {
+            // A layout pass, not a scroll
+            return;
+        }
+        mDirection = dy > 0 ? 1 : -1;
+        measureVelocity(recyclerView, dy);
+
+        float speed = Math.abs(mRowsPerSecond);
+        boolean fling = recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_SETTLING
+                && speed > PAUSE_ROWS_PER_SECOND;
+        setPaused(fling);
+        if (!fling) {
+            prefetch(Math.max(MIN_PREFETCH_ROWS,
+                    Math.min(MAX_PREFETCH_ROWS, Math.round(speed * PREFETCH_SECONDS))));
+        }
+    }
+
+    // Rows are about the same height, so the first one turns pixels into rows
+    private void measureVelocity(RecyclerView recyclerView, int dy) {
+        long now = SystemClock.uptimeMillis();
+        View row = recyclerView.getChildAt(0);
+        if (mLastScrollMillis != 0 && now > mLastScrollMillis
+                && row != null && row.getHeight() > 0) {
+            float rowsPerSecond = dy * 1000f / (row.getHeight() * (float) (now - mLastScrollMillis));
+            mRowsPerSecond += VELOCITY_SMOOTHING * (rowsPerSecond - mRowsPerSecond);
+        }
+        mLastScrollMillis = now;
+    }
+
+    private void setPaused(boolean paused) {
+        if (paused != mPaused) {
+            mPaused = paused;
+            mAdapter.setThumbnailsPaused(paused);
+        }
+    }
+
+    // Prefetches the given number of rows past the visible ones, in the scroll direction
+    private void prefetch(int rows) {
+        int first;
+        int last;
+        if (mDirection > 0) {
+            int lastVisible = mLayoutManager.findLastVisibleItemPosition();
+            if (lastVisible == RecyclerView.NO_POSITION) {
+                return;
+            }
+            first = lastVisible + 1;
+            last = lastVisible + rows;
+        } else {
+            int firstVisible = mLayoutManager.findFirstVisibleItemPosition();
+            if (firstVisible == RecyclerView.NO_POSITION) {
+                return;
+            }
+            first = firstVisible - rows;
+            last = firstVisible - 1;
+        }
+        if (first != mPrefetchedFirst || last != mPrefetchedLast) {
+            mPrefetchedFirst = first;
+            mPrefetchedLast = last;
+            mAdapter.prefetchThumbnails(first, last);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.android.newsapp;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the feeds of several topics at the same time and merges them into a single feed,
+ * newest first, in which every article appears once. Fetching takes as long as the slowest
+ * topic instead of the sum of all of them.
+ */
+public final class TopicFeeds {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = TopicFeeds.class.getSimpleName();
+
+    /**
+     * Number of topics fetched at the same time besides the one fetched by the caller
+     */
+    private static final int MAX_CONCURRENCY = 3;
+
+    private static final ExecutorService sExecutor =
+            Executors.newFixedThreadPool(MAX_CONCURRENCY, new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, LOG_TAG + " #" + mCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TopicFeeds} object.
+     */
+    private TopicFeeds() {
+    }
+
+    /**
+     * Fetches the given feed URLs in parallel and returns their merged news, or null if every
+     * one of them failed. Topics that failed are left out of the result. Each feed is expected
+     * to be ordered newest first.
+     *
+     * @throws OperationCanceledException if the signal was cancelled while fetching
+     */
+    public static List<News> fetch(List<String> urls, FetchProfile profile,
+                                   CancellationSignal signal) {
+        Page page = fetch(urls, profile, 0, signal);
+        return page == null ? null : page.news;
+    }
+
+    /**
+     * Fetches a page of each of the given feed URLs in parallel as {@link #fetch(List,
+     * FetchProfile, CancellationSignal)} does, and tells for each topic whether it was fetched
+     * and whether it has more pages, that is whether it filled the given page size. Returns
+     * null if every topic failed.
+     *
+     * @throws OperationCanceledException if the signal was cancelled while fetching
+     */
+    public static Page fetch(List<String> urls, FetchProfile profile, int pageSize,
+                             CancellationSignal signal) {
+        List<List<News>> feeds = fetchFeeds(urls, profile, signal);
+        if (feeds == null) {
+            return null;
+        }
+        return new Page(feeds, pageSize);
+    }
+
+    /**
+     * Returns the news of each feed, null for those that failed, or null if all of them did.
+     */
+    private static List<List<News>> fetchFeeds(List<String> urls, FetchProfile profile,
+                                               final CancellationSignal signal) {
+        if (urls.size() == 1) {
+            List<News> feed = QueryUtils.fetchNewsData(urls.get(0), profile, signal);
+            return feed == null ? null : Collections.singletonList(feed);
+        }
+
+        // A signal holds a single cancel listener and each request sets its own,
+        // so every topic gets a signal of its own, cancelled along with the caller's
+        final List<CancellationSignal> topicSignals = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            topicSignals.add(new CancellationSignal());
+        }
+        if (signal != null) {
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    for (CancellationSignal topicSignal : topicSignals) {
+                        topicSignal.cancel();
+                    }
+                }
+            });
+        }
+
+        List<List<News>> feeds = new ArrayList<>(urls.size());
+        List<Future<List<News>>> futures = new ArrayList<>(urls.size() - 1);
+        try {
+            for (int i = 1; i < urls.size(); i++) {
+                futures.add(sExecutor.submit(fetchTask(urls.get(i), profile, topicSignals.get(i))));
+            }
+            // The calling thread fetches the first topic instead of just waiting
+            feeds.add(fetchTopic(urls.get(0), profile, topicSignals.get(0)));
+            for (Future<List<News>> future : futures) {
+                feeds.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem fetching a topic", e.getCause());
+            return null;
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            for (CancellationSignal topicSignal : topicSignals) {
+                topicSignal.cancel();
+            }
+        }
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+
+        for (List<News> feed : feeds) {
+            if (feed != null) {
+                return feeds;
+            }
+        }
+        return null;
+    }
+
+    private static Callable<List<News>> fetchTask(final String url, final FetchProfile profile,
+                                                  final CancellationSignal signal) {
+        return new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                return fetchTopic(url, profile, signal);
+            }
+        };
+    }
+
+    // A cancelled topic counts as failed here, the caller's signal tells whether to give up
+    private static List<News> fetchTopic(String url, FetchProfile profile,
+                                         CancellationSignal signal) {
+        try {
+            return QueryUtils.fetchNewsData(url, profile, signal);
+        } catch (OperationCanceledException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Merges feeds that are each ordered newest first into one feed ordered newest first.
+     * News without a publication time come last, and news whose URL already appeared
+     * are skipped. Every feed is walked once, without sorting the merged feed.
+     */
+    public static NewsBatch merge(List<List<News>> feeds) {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(feeds.size(), 1));
+        for (int i = 0; i < feeds.size(); i++) {
+            List<News> feed = feeds.get(i);
+            if (!feed.isEmpty()) {
+                queue.add(new Cursor(feed, i));
+            }
+        }
+
+        // One batch for all topics, so names repeating across topics are held once
+        NewsBatch.Builder merged = new NewsBatch.Builder();
+        Set<String> urls = new HashSet<>();
+        while (!queue.isEmpty()) {
+            Cursor cursor = queue.poll();
+            News news = cursor.current();
+            if (news.getUrl() == null || urls.add(news.getUrl())) {
+                merged.add(news);
+            }
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return merged.build();
+    }
+
+    /**
+     * The merged news of a page of several topics, and how far each topic got.
+     */
+    public static final class Page {
+        /**
+         * The news of the topics that were fetched, merged
+         */
+        public final List<News> news;
+        private final boolean[] mFetched;
+        private final boolean[] mHasMore;
+
+        Page(List<List<News>> feeds, int pageSize) {
+            mFetched = new boolean[feeds.size()];
+            mHasMore = new boolean[feeds.size()];
+            List<List<News>> fetched = new ArrayList<>(feeds.size());
+            for (int i = 0; i < feeds.size(); i++) {
+                List<News> feed = feeds.get(i);
+                if (feed != null) {
+                    fetched.add(feed);
+                    mFetched[i] = true;
+                    // A full page may be followed by another, a short one is the last
+                    mHasMore[i] = feed.size() >= pageSize;
+                }
+            }
+            // A single feed is already in order, so it is not copied
+            news = fetched.size() == 1 ? fetched.get(0) : merge(fetched);
+        }
+
+        /**
+         * Returns whether the topic at the given index was fetched, rather than failed.
+         */
+        public boolean isFetched(int topic) {
+            return mFetched[topic];
+        }
+
+        /**
+         * Returns whether the topic at the given index was fetched and filled the page.
+         */
+        public boolean hasMore(int topic) {
+            return mHasMore[topic];
+        }
+    }
+
+    /**
+     * Position in one of the merged feeds, ordered by the time of its news, newest first,
+     * then by feed so equal times keep the order of the topics.
+     */
+    private static final class Cursor implements Comparable<Cursor> {
+        private final List<News> mFeed;
+        private final int mFeedIndex;
+        private int mPosition;
+        // A batch creates a news on every get, so the one compared is kept
+        private News mCurrent;
+
+        Cursor(List<News> feed, int feedIndex) {
+            mFeed = feed;
+            mFeedIndex = feedIndex;
+            mCurrent = feed.get(0);
+        }
+
+        News current() {
+            return mCurrent;
+        }
+
+        boolean advance() {
+            if (++mPosition < mFeed.size()) {
+                mCurrent = mFeed.get(mPosition);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            // UNKNOWN_TIME is the smallest long, so it sorts after every known time
+            long time = mCurrent.getTimeInMillis();
+            long otherTime = other.mCurrent.getTimeInMillis();
+            if (time != otherTime) {
+                return time > otherTime ? -1 : 1;
+            }
+            return mFeedIndex < other.mFeedIndex ? -1 : (mFeedIndex == other.mFeedIndex ? 0 : 1);
+        }
+    }
+}
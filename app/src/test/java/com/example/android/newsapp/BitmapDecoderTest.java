@@ -0,0 +1,39 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The {@code inSampleSize} picked by {@link BitmapDecoder} for a thumbnail and its view.
+ */
+public class BitmapDecoderTest {
+
+    @Test
+    public void keepsSmallImagesWhole() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(100, 60, 100, 60));
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(50, 30, 100, 60));
+        // Halving would make the width smaller than the view
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(199, 120, 100, 60));
+    }
+
+    @Test
+    public void picksLargestPowerOfTwoKeepingBothSides() {
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(200, 120, 100, 60));
+        assertEquals(4, BitmapDecoder.calculateInSampleSize(500, 300, 100, 60));
+        assertEquals(16, BitmapDecoder.calculateInSampleSize(3500, 2100, 200, 120));
+    }
+
+    @Test
+    public void shorterSideLimitsTheSampling() {
+        // A wide image is limited by its height, a tall one by its width
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(2000, 120, 100, 60));
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(200, 1200, 100, 60));
+    }
+
+    @Test
+    public void unknownViewSizeKeepsImagesWhole() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(3500, 2100, 0, 60));
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(3500, 2100, 100, -1));
+    }
+}
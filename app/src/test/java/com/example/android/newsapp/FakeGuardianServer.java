@@ -0,0 +1,236 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Local stand-in for the Guardian API and its image host, on a {@link MockWebServer}.
+ * <p>
+ * /search answers with its page of the results in the search-{page size}.json fixtures shared
+ * with the benchmarks, gzipped when asked to. The fixtures are synthetic, shaped like Guardian
+ * responses but not recorded from the API. A page is the slice of the results of the
+ * smallest fixture that reaches its end, so every page holds other articles, and pages past the
+ * largest fixture are empty, as past the last page of the API. The thumbnail URLs of the
+ * responses are rewritten to /thumbnails/ on the same server, which answers with
+ * {@link #THUMBNAIL_BYTES} bytes. Every answer can be delayed, throttled or replaced by an error.
+ */
+final class FakeGuardianServer {
+
+    /**
+     * Size of every thumbnail served
+     */
+    static final int THUMBNAIL_BYTES = 16 * 1024;
+
+    private static final String GUARDIAN_IMAGE_HOST = "https://media.guim.co.uk/";
+
+    private static final int[] FIXTURE_PAGE_SIZES = {10, 50, 200};
+
+    private final MockWebServer mServer = new MockWebServer();
+
+    private final byte[] mThumbnail = new byte[THUMBNAIL_BYTES];
+
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicLong mBytesServed = new AtomicLong();
+
+    private volatile long mLatencyMillis;
+    private volatile long mBytesPerSecond;
+    private volatile int mErrorEvery;
+
+    FakeGuardianServer() {
+        Arrays.fill(mThumbnail, (byte) 0x5A);
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return answer(request);
+            }
+        });
+    }
+
+    /**
+     * Delays the headers of every answer by the given time, as a slow round trip would.
+     */
+    FakeGuardianServer setLatencyMillis(long latencyMillis) {
+        mLatencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * Sends every body at the given rate at most, or at full speed for 0.
+     */
+    FakeGuardianServer setBytesPerSecond(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Answers every nth request with a 503, or none for 0.
+     */
+    FakeGuardianServer setErrorEvery(int errorEvery) {
+        mErrorEvery = errorEvery;
+        return this;
+    }
+
+    void start() throws IOException {
+        mServer.start();
+    }
+
+    void shutdown() throws IOException {
+        mServer.shutdown();
+    }
+
+    /**
+     * Returns the URL of the given page of a search.
+     */
+    String searchUrl(int pageSize, int page) {
+        return mServer.url("/search").newBuilder()
+                .addQueryParameter("page-size", String.valueOf(pageSize))
+                .addQueryParameter("q", "news")
+                .addQueryParameter("page", String.valueOf(page))
+                .build().toString();
+    }
+
+    /**
+     * Returns the number of requests answered so far, errors included.
+     */
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * Returns the number of body bytes sent so far, as sent, so gzipped bodies count gzipped.
+     */
+    long getBytesServed() {
+        return mBytesServed.get();
+    }
+
+    private MockResponse answer(RecordedRequest request) {
+        int count = mRequestCount.incrementAndGet();
+        MockResponse response;
+        try {
+            if (mErrorEvery > 0 && count % mErrorEvery == 0) {
+                response = new MockResponse().setResponseCode(503);
+            } else if (request.getPath().startsWith("/search")) {
+                response = search(request);
+            } else if (request.getPath().startsWith("/thumbnails/")) {
+                response = body(mThumbnail).addHeader("Content-Type", "image/jpeg");
+            } else {
+                response = new MockResponse().setResponseCode(404);
+            }
+        } catch (IOException e) {
+            response = new MockResponse().setResponseCode(500);
+        }
+        if (mLatencyMillis > 0) {
+            response.setHeadersDelay(mLatencyMillis, TimeUnit.MILLISECONDS);
+        }
+        if (mBytesPerSecond > 0) {
+            // Sent in chunks of a tenth of a second
+            response.throttleBody(Math.max(mBytesPerSecond / 10, 1), 100, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private MockResponse search(RecordedRequest request) throws IOException {
+        HttpUrl url = request.getRequestUrl();
+        int pageSize = parsePositive(url.queryParameter("page-size"), FIXTURE_PAGE_SIZES[0]);
+        int page = parsePositive(url.queryParameter("page"), 1);
+        String fixture = new String(readFixture(fixturePageSize(page * pageSize)), "UTF-8")
+                .replace(GUARDIAN_IMAGE_HOST, mServer.url("/thumbnails/").toString());
+        byte[] data = slice(fixture, page, pageSize).getBytes("UTF-8");
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return body(gzip(data)).addHeader("Content-Encoding", "gzip")
+                    .addHeader("Content-Type", "application/json");
+        }
+        return body(data).addHeader("Content-Type", "application/json");
+    }
+
+    private MockResponse body(byte[] data) {
+        mBytesServed.addAndGet(data.length);
+        return new MockResponse().setBody(new Buffer().write(data));
+    }
+
+    /**
+     * Returns the fixture response with only the results of the given page.
+     */
+    private static String slice(String fixture, int page, int pageSize) throws IOException {
+        try {
+            JSONObject root = new JSONObject(fixture);
+            JSONObject response = root.getJSONObject("response");
+            JSONArray results = response.getJSONArray("results");
+            JSONArray pageResults = new JSONArray();
+            int end = Math.min(page * pageSize, results.length());
+            for (int i = (page - 1) * pageSize; i < end; i++) {
+                pageResults.put(results.get(i));
+            }
+            response.put("results", pageResults);
+            response.put("pageSize", pageSize);
+            response.put("currentPage", page);
+            response.put("startIndex", (page - 1) * pageSize + 1);
+            return root.toString();
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static int parsePositive(String value, int fallback) {
+        try {
+            return Math.max(Integer.parseInt(value), 1);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    // The smallest fixture holding the results up to the given one
+    private static int fixturePageSize(int results) {
+        for (int size : FIXTURE_PAGE_SIZES) {
+            if (size >= results) {
+                return size;
+            }
+        }
+        return FIXTURE_PAGE_SIZES[FIXTURE_PAGE_SIZES.length - 1];
+    }
+
+    private static byte[] readFixture(int pageSize) throws IOException {
+        String name = "/fixtures/search-" + pageSize + ".json";
+        InputStream inputStream = FakeGuardianServer.class.getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+        gzipOutput.write(data);
+        gzipOutput.close();
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parsing of the API timestamps by {@link Iso8601Parser}.
+ */
+public class Iso8601ParserTest {
+
+    // 2017-10-29T06:00:20Z
+    private static final long MILLIS = 1509256820000L;
+
+    @Test
+    public void parsesUtc() {
+        assertEquals(MILLIS, Iso8601Parser.parse("2017-10-29T06:00:20Z"));
+        assertEquals(MILLIS, Iso8601Parser.parse("2017-10-29T06:00:20"));
+    }
+
+    @Test
+    public void parsesFractionalSeconds() {
+        assertEquals(MILLIS + 123, Iso8601Parser.parse("2017-10-29T06:00:20.123Z"));
+        assertEquals(MILLIS + 500, Iso8601Parser.parse("2017-10-29T06:00:20.5Z"));
+        // Past milliseconds the digits are dropped, not rounded
+        assertEquals(MILLIS + 123, Iso8601Parser.parse("2017-10-29T06:00:20.123987Z"));
+    }
+
+    @Test
+    public void parsesOffsets() {
+        assertEquals(MILLIS - 90 * 60 * 1000, Iso8601Parser.parse("2017-10-29T06:00:20+01:30"));
+        assertEquals(MILLIS + 5 * 60 * 60 * 1000, Iso8601Parser.parse("2017-10-29T06:00:20-05:00"));
+    }
+
+    @Test
+    public void parsesCalendarEdges() {
+        assertEquals(946684800000L, Iso8601Parser.parse("2000-01-01T00:00:00Z"));
+        assertEquals(1456790399000L, Iso8601Parser.parse("2016-02-29T23:59:59Z"));
+        assertEquals(-1000L, Iso8601Parser.parse("1969-12-31T23:59:59Z"));
+    }
+
+    @Test
+    public void rejectsMalformedTimestamps() {
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse(null));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse(""));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-10-29"));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-10-29 06:00:20Z"));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-13-29T06:00:20Z"));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-10-29T24:00:20Z"));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-1O-29T06:00:20Z"));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-10-29T06:00:20+0100"));
+        assertEquals(News.UNKNOWN_TIME, Iso8601Parser.parse("2017-10-29T06:00:20Zulu"));
+    }
+}
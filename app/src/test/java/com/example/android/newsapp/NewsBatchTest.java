@@ -0,0 +1,107 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Interning of the repeated names of a {@link NewsBatch} and its equality with other lists.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, manifest = Config.NONE)
+public class NewsBatchTest {
+
+    private static final News GREECE = new News("Greek elections", "World news", "Helena Smith",
+            1520000000000L, "https://www.theguardian.com/world/greece", "https://media.guim.co.uk/1.jpg");
+
+    private static final News BREXIT = new News("Brexit talks", "Politics", "Jessica Elgot",
+            1510000000000L, "https://www.theguardian.com/politics/brexit", null);
+
+    @Test
+    public void internsRepeatedNames() {
+        // Distinct instances, as parsing every result would create
+        NewsBatch batch = new NewsBatch.Builder()
+                .add("First", new String("World news"), new String("Helena Smith"), 1L, "a", null)
+                .add("Second", new String("World news"), new String("Helena Smith"), 2L, "b", null)
+                .build();
+
+        assertSame(batch.getSectionName(0), batch.getSectionName(1));
+        assertSame(batch.getAuthor(0), batch.getAuthor(1));
+    }
+
+    @Test
+    public void internsPerBuilder() {
+        NewsBatch first = new NewsBatch.Builder()
+                .add("First", new String("World news"), null, 1L, "a", null).build();
+        NewsBatch second = new NewsBatch.Builder()
+                .add("Second", new String("World news"), null, 2L, "b", null).build();
+
+        assertNotSame(first.getSectionName(0), second.getSectionName(0));
+    }
+
+    @Test
+    public void getReturnsTheNewsAdded() {
+        NewsBatch batch = NewsBatch.copyOf(Arrays.asList(GREECE, BREXIT));
+
+        assertEquals(2, batch.size());
+        assertEquals(GREECE, batch.get(0));
+        assertEquals(BREXIT, batch.get(1));
+        assertEquals(BREXIT.getTimeInMillis(), batch.getTimeInMillis(1));
+    }
+
+    @Test
+    public void copyOfKeepsBatches() {
+        NewsBatch batch = NewsBatch.copyOf(Arrays.asList(GREECE, BREXIT));
+
+        assertSame(batch, NewsBatch.copyOf(batch));
+        assertSame(NewsBatch.empty(), NewsBatch.copyOf(new ArrayList<News>()));
+    }
+
+    @Test
+    public void equalsBatchWithSameColumns() {
+        NewsBatch batch = NewsBatch.copyOf(Arrays.asList(GREECE, BREXIT));
+        NewsBatch other = NewsBatch.copyOf(Arrays.asList(GREECE, BREXIT));
+
+        assertEquals(batch, other);
+        assertEquals(batch.hashCode(), other.hashCode());
+        assertTrue(batch.equalsAt(1, other, 1));
+        assertFalse(batch.equalsAt(0, other, 1));
+    }
+
+    @Test
+    public void differsFromBatchWithOtherColumn() {
+        News retitled = new News("Greek elections called", GREECE.getSectionName(),
+                GREECE.getAuthor(), GREECE.getTimeInMillis(), GREECE.getUrl(),
+                GREECE.getThumbnailUrl());
+        NewsBatch batch = NewsBatch.copyOf(Arrays.asList(GREECE, BREXIT));
+        NewsBatch other = NewsBatch.copyOf(Arrays.asList(retitled, BREXIT));
+
+        assertNotEquals(batch, other);
+        // Only the URLs are hashed, so the hash codes still match
+        assertEquals(batch.hashCode(), other.hashCode());
+        assertNotEquals(batch, NewsBatch.copyOf(Arrays.asList(GREECE)));
+    }
+
+    @Test
+    public void equalsOtherListsOfTheSameNews() {
+        List<News> list = new ArrayList<>(Arrays.asList(GREECE, BREXIT));
+        NewsBatch batch = NewsBatch.copyOf(list);
+
+        assertEquals(list, batch);
+        assertEquals(batch, list);
+        assertEquals(list.hashCode(), batch.hashCode());
+        assertNotEquals(batch, Arrays.asList(BREXIT, GREECE));
+    }
+}
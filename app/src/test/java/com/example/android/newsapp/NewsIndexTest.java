@@ -0,0 +1,105 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Prefix search of the {@link NewsIndex}, and indexing news again as they change.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, manifest = Config.NONE)
+public class NewsIndexTest {
+
+    private static final News ELECTIONS = news("Greek elections: what happens next",
+            "World news", "Helena Smith", 1520000000000L, "https://www.theguardian.com/elections");
+
+    private static final News CAFES = news("Athens caf\u00e9s reopen as Greece eases rules",
+            "Travel", "Kate Connolly", 1530000000000L, "https://www.theguardian.com/cafes");
+
+    private static final News UNDATED = news("Greek islands guide", "Travel", null,
+            News.UNKNOWN_TIME, "https://www.theguardian.com/islands");
+
+    private final NewsIndex mIndex = new NewsIndex();
+
+    @Test
+    public void everyTermMustStartAWord() {
+        mIndex.addAll(Arrays.asList(ELECTIONS, CAFES, UNDATED));
+
+        assertEquals(Collections.singletonList(ELECTIONS), mIndex.search("gre ele"));
+        assertEquals(Collections.<News>emptyList(), mIndex.search("athens helena"));
+        // Inside a word is not the start of one
+        assertEquals(Collections.<News>emptyList(), mIndex.search("lections"));
+    }
+
+    @Test
+    public void searchesSectionsAndAuthors() {
+        mIndex.addAll(Arrays.asList(ELECTIONS, CAFES, UNDATED));
+
+        assertEquals(Collections.singletonList(ELECTIONS), mIndex.search("helena"));
+        assertEquals(Arrays.asList(CAFES, UNDATED), mIndex.search("trav"));
+    }
+
+    @Test
+    public void ignoresCaseAndAccents() {
+        mIndex.addAll(Arrays.asList(ELECTIONS, CAFES, UNDATED));
+
+        assertEquals(Collections.singletonList(CAFES), mIndex.search("CAFES"));
+        assertEquals(Collections.singletonList(CAFES), mIndex.search("Caf\u00e9"));
+    }
+
+    @Test
+    public void returnsNewestFirstAndUndatedLast() {
+        mIndex.addAll(Arrays.asList(UNDATED, ELECTIONS, CAFES));
+
+        assertEquals(Arrays.asList(CAFES, ELECTIONS, UNDATED), mIndex.search("g"));
+    }
+
+    @Test
+    public void queryWithoutWordsFiltersNothing() {
+        mIndex.addAll(Arrays.asList(ELECTIONS, CAFES));
+
+        assertNull(mIndex.search(""));
+        assertNull(mIndex.search(" - "));
+    }
+
+    @Test
+    public void indexesChangedNewsAgain() {
+        mIndex.addAll(Collections.singletonList(ELECTIONS));
+        // Its title repeats a word, which is only unindexed once
+        News renamed = news("Vote vote: Greek polls close", ELECTIONS.getSectionName(),
+                ELECTIONS.getAuthor(), ELECTIONS.getTimeInMillis(), ELECTIONS.getUrl());
+        mIndex.addAll(Collections.singletonList(renamed));
+        News renamedAgain = news("Greek results", ELECTIONS.getSectionName(),
+                ELECTIONS.getAuthor(), ELECTIONS.getTimeInMillis(), ELECTIONS.getUrl());
+        mIndex.addAll(Collections.singletonList(renamedAgain));
+
+        assertEquals(Collections.<News>emptyList(), mIndex.search("elections"));
+        assertEquals(Collections.<News>emptyList(), mIndex.search("vote"));
+        assertEquals(Collections.singletonList(renamedAgain), mIndex.search("greek res"));
+    }
+
+    @Test
+    public void searchKeepsItsResultsWhileIndexing() {
+        mIndex.addAll(Collections.singletonList(ELECTIONS));
+        List<News> results = mIndex.search("greek");
+
+        mIndex.addAll(Collections.singletonList(UNDATED));
+
+        assertEquals(Collections.singletonList(ELECTIONS), results);
+        assertEquals(Arrays.asList(ELECTIONS, UNDATED), mIndex.search("greek"));
+    }
+
+    private static News news(String title, String sectionName, String author, long timeInMillis,
+                             String url) {
+        return new News(title, sectionName, author, timeInMillis, url, null);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * End to end load of the news against a {@link FakeGuardianServer}, one scenario per network.
+ * <p>
+ * A load fetches {@link #PAGES} pages through {@link QueryUtils#fetchNewsData(String)}, then
+ * the thumbnails of every news on a {@link ThumbnailFetcher}, as the list would. Each scenario
+ * logs its time to the first article, which is the time of the first page, its total load
+ * time and the bytes sent by the server.
+ * <p>
+ * The scenarios take a while, so they are skipped unless the {@link #ENABLED_PROPERTY} system
+ * property is true. Run with ./gradlew :app:testDebugUnitTest -PloadHarness
+ * --tests '*NewsLoadHarness', which sets it and shows the report in the test output.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, manifest = Config.NONE)
+public class NewsLoadHarness {
+
+    /**
+     * System property that turns the harness on
+     */
+    static final String ENABLED_PROPERTY = "newsapp.loadHarness";
+
+    private static final Logger LOG = Logger.getLogger(NewsLoadHarness.class.getSimpleName());
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final int PAGES = 3;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final FakeGuardianServer mServer = new FakeGuardianServer();
+
+    @BeforeClass
+    public static void checkEnabled() {
+        assumeTrue(Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fastNetwork() throws Exception {
+        Result result = load("fast");
+        assertEquals(PAGES * PAGE_SIZE, result.news);
+        assertEquals(result.news, result.thumbnails);
+    }
+
+    @Test
+    public void slowNetwork() throws Exception {
+        mServer.setLatencyMillis(300).setBytesPerSecond(256 * 1024);
+        Result result = load("3g");
+        assertEquals(PAGES * PAGE_SIZE, result.news);
+    }
+
+    @Test
+    public void failingServer() throws Exception {
+        // The retries get every page through, some thumbnails may run out of them
+        mServer.setLatencyMillis(50).setErrorEvery(4);
+        Result result = load("flaky");
+        assertEquals(PAGES * PAGE_SIZE, result.news);
+    }
+
+    private Result load(String scenario) throws Exception {
+        long start = System.nanoTime();
+        List<News> news = new ArrayList<>();
+        Set<String> urls = new HashSet<>();
+        long firstArticleNanos = 0;
+        for (int page = 1; page <= PAGES; page++) {
+            List<News> pageNews = QueryUtils.fetchNewsData(mServer.searchUrl(PAGE_SIZE, page));
+            assertNotNull("page " + page, pageNews);
+            if (page == 1) {
+                assertTrue(!pageNews.isEmpty());
+                firstArticleNanos = System.nanoTime() - start;
+            }
+            for (News item : pageNews) {
+                // Each page must bring other articles, or the pages would not be measured
+                assertTrue("repeated " + item.getUrl(), urls.add(item.getUrl()));
+            }
+            news.addAll(pageNews);
+        }
+
+        // A cache of its own, so no scenario finds the thumbnails of another on disk
+        final ThumbnailCache cache = new ThumbnailCache(1024 * 1024,
+                new DiskLruStore(mFolder.newFolder(), 4 * 1024 * 1024),
+                new BitmapPool(1024 * 1024));
+        ThumbnailFetcher fetcher = new ThumbnailFetcher(ThumbnailFetcher.DEFAULT_CONCURRENCY);
+        final AtomicInteger thumbnails = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(news.size());
+        for (int i = 0; i < news.size(); i++) {
+            final String url = news.get(i).getThumbnailUrl();
+            futures.add(fetcher.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (QueryUtils.fetchingImageBytes(url, cache) != null) {
+                        thumbnails.incrementAndGet();
+                    }
+                }
+            }, i));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        fetcher.shutdown();
+        long totalNanos = System.nanoTime() - start;
+
+        Result result = new Result(news.size(), thumbnails.get());
+        LOG.info(String.format(Locale.ROOT,
+                "%-6s first article %5d ms, total %6d ms, %8d bytes in %3d requests,"
+                        + " %d news, %d thumbnails",
+                scenario, TimeUnit.NANOSECONDS.toMillis(firstArticleNanos),
+                TimeUnit.NANOSECONDS.toMillis(totalNanos), mServer.getBytesServed(),
+                mServer.getRequestCount(), result.news, result.thumbnails));
+        return result;
+    }
+
+    private static final class Result {
+        final int news;
+        final int thumbnails;
+
+        Result(int news, int thumbnails) {
+            this.news = news;
+            this.thumbnails = thumbnails;
+        }
+    }
+}
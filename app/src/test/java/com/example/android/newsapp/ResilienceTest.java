@@ -0,0 +1,116 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * States of the {@link Resilience.CircuitBreaker} of a host, and which failures
+ * {@link Resilience} takes for an interruption.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, manifest = Config.NONE)
+public class ResilienceTest {
+
+    @Test
+    public void staysClosedBelowTheThreshold() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker();
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD - 1);
+
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsTheFailures() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker();
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD - 1);
+        breaker.onSuccess();
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD - 1);
+
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void opensAtTheThreshold() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker();
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD);
+
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void letsOneTrialThroughOnceOpenLongEnough() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker(0);
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD);
+
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successfulTrialCloses() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker(0);
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD);
+        breaker.allowRequest();
+        breaker.onSuccess();
+
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensAgain() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker(0);
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD);
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+
+        // Opened again by the single failure, so only a new trial goes through
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void cancelledTrialLetsTheNextRequestTry() {
+        Resilience.CircuitBreaker breaker = new Resilience.CircuitBreaker(0);
+        failTimes(breaker, Resilience.CircuitBreaker.FAILURE_THRESHOLD);
+        assertTrue(breaker.allowRequest());
+        breaker.onCancel();
+
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void tellsInterruptionsFromTimeouts() {
+        assertTrue(Resilience.isInterruption(new InterruptedIOException()));
+        assertTrue(Resilience.isInterruption(new ClosedByInterruptException()));
+        assertFalse(Resilience.isInterruption(new SocketTimeoutException()));
+        assertFalse(Resilience.isInterruption(new IOException()));
+    }
+
+    @Test
+    public void interruptedThreadIsAnInterruption() {
+        Thread.currentThread().interrupt();
+        try {
+            assertTrue(Resilience.isInterruption(new SocketTimeoutException()));
+        } finally {
+            // Clears the flag so the next tests run uninterrupted
+            Thread.interrupted();
+        }
+    }
+
+    private static void failTimes(Resilience.CircuitBreaker breaker, int failures) {
+        for (int i = 0; i < failures; i++) {
+            breaker.onFailure();
+        }
+    }
+}
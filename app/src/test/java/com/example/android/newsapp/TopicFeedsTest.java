@@ -0,0 +1,107 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Merging of the topic feeds by {@link TopicFeeds#merge} and the paging state of a
+ * {@link TopicFeeds.Page}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27, manifest = Config.NONE)
+public class TopicFeedsTest {
+
+    @Test
+    public void mergesNewestFirst() {
+        List<News> politics = Arrays.asList(news("p1", 90), news("p2", 50), news("p3", 10));
+        List<News> sport = Arrays.asList(news("s1", 80), news("s2", 70));
+        List<News> science = Arrays.asList(news("c1", 60), news("c2", 20));
+
+        List<News> merged = TopicFeeds.merge(Arrays.asList(politics, sport, science));
+
+        assertEquals(Arrays.asList("p1", "s1", "s2", "c1", "p2", "c2", "p3"), urlsOf(merged));
+    }
+
+    @Test
+    public void equalTimesKeepTheOrderOfTheTopics() {
+        List<News> first = Arrays.asList(news("a1", 50), news("a2", 50));
+        List<News> second = Arrays.asList(news("b1", 50));
+
+        List<News> merged = TopicFeeds.merge(Arrays.asList(second, first));
+
+        assertEquals(Arrays.asList("b1", "a1", "a2"), urlsOf(merged));
+    }
+
+    @Test
+    public void undatedNewsComeLast() {
+        List<News> first = Arrays.asList(news("a1", 50), news("a2", News.UNKNOWN_TIME));
+        List<News> second = Arrays.asList(news("b1", 40));
+
+        List<News> merged = TopicFeeds.merge(Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList("a1", "b1", "a2"), urlsOf(merged));
+    }
+
+    @Test
+    public void keepsTheFirstOfRepeatedArticles() {
+        List<News> first = Arrays.asList(news("shared", 50), news("a1", 30));
+        List<News> second = Arrays.asList(news("b1", 60), news("shared", 50));
+
+        List<News> merged = TopicFeeds.merge(Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList("b1", "shared", "a1"), urlsOf(merged));
+    }
+
+    @Test
+    public void skipsEmptyFeeds() {
+        List<News> feed = Arrays.asList(news("a1", 50));
+
+        assertEquals(Arrays.asList("a1"),
+                urlsOf(TopicFeeds.merge(Arrays.asList(Collections.<News>emptyList(), feed))));
+        assertTrue(TopicFeeds.merge(Collections.<List<News>>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void pageTellsWhichTopicsFilledIt() {
+        List<News> full = Arrays.asList(news("a1", 50), news("a2", 40));
+        List<News> shortFeed = Arrays.asList(news("b1", 45));
+
+        TopicFeeds.Page page = new TopicFeeds.Page(Arrays.asList(full, null, shortFeed), 2);
+
+        assertEquals(Arrays.asList("a1", "b1", "a2"), urlsOf(page.news));
+        assertTrue(page.isFetched(0) && page.hasMore(0));
+        assertFalse(page.isFetched(1) || page.hasMore(1));
+        assertTrue(page.isFetched(2));
+        assertFalse(page.hasMore(2));
+    }
+
+    @Test
+    public void pageOfOneTopicIsNotCopied() {
+        List<News> feed = Arrays.asList(news("a1", 50));
+
+        assertSame(feed, new TopicFeeds.Page(Arrays.asList(null, feed), 10).news);
+    }
+
+    private static News news(String url, long timeInMillis) {
+        return new News("Title " + url, "Section", null, timeInMillis, url, null);
+    }
+
+    private static List<String> urlsOf(List<News> newsList) {
+        String[] urls = new String[newsList.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = newsList.get(i).getUrl();
+        }
+        return Arrays.asList(urls);
+    }
+}
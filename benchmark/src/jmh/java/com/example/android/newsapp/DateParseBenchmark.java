@@ -0,0 +1,32 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Parsing of a publication time, with {@link Iso8601Parser} and, for comparison,
+ * with a new {@link SimpleDateFormat} per news as the parse loop used to do.
+ */
+@State(Scope.Thread)
+public class DateParseBenchmark {
+
+    private static final String TIMESTAMP = "2017-10-29T06:00:20Z";
+
+    @Benchmark
+    public long iso8601Parser() {
+        return Iso8601Parser.parse(TIMESTAMP);
+    }
+
+    @Benchmark
+    public long simpleDateFormat() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.parse(TIMESTAMP).getTime();
+    }
+}
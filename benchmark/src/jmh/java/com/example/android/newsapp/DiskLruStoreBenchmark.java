@@ -0,0 +1,73 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Reads and writes of the {@link DiskLruStore} that is the disk tier of the thumbnail cache,
+ * with thumbnail sized entries. Decoding the thumbnails needs the native BitmapFactory, so
+ * that stage can only be measured on a device.
+ */
+@State(Scope.Benchmark)
+public class DiskLruStoreBenchmark {
+
+    private static final int THUMBNAILS = 64;
+
+    /**
+     * Size of one encoded thumbnail, the guardian 500px wide JPEGs are around 30 KB
+     */
+    @Param({"30000"})
+    public int thumbnailBytes;
+
+    private File mDirectory;
+    private DiskLruStore mCache;
+    private byte[] mThumbnail;
+    private int mNext;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("thumbnails", "");
+        mDirectory.delete();
+        mCache = new DiskLruStore(mDirectory, 10 * 1024 * 1024);
+        mThumbnail = new byte[thumbnailBytes];
+        new Random(27).nextBytes(mThumbnail);
+        for (int i = 0; i < THUMBNAILS; i++) {
+            mCache.put(url(i), mThumbnail);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mCache.clear();
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public byte[] hit() {
+        mNext = (mNext + 1) % THUMBNAILS;
+        return mCache.get(url(mNext));
+    }
+
+    @Benchmark
+    public byte[] miss() {
+        return mCache.get("https://media.guim.co.uk/missing/500.jpg");
+    }
+
+    @Benchmark
+    public void put() {
+        mNext = (mNext + 1) % THUMBNAILS;
+        mCache.put(url(mNext), mThumbnail);
+    }
+
+    private static String url(int i) {
+        return "https://media.guim.co.uk/" + i + "/0_0_3500_2100/500.jpg";
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parsing of a whole search response into a {@link NewsBatch}, as done by
+ * {@link QueryUtils#readNewsFromStream} on the connection stream.
+ */
+@State(Scope.Benchmark)
+public class FeedParseBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int pageSize;
+
+    private byte[] mResponse;
+    private byte[] mGzippedResponse;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = Fixtures.searchResponse(pageSize);
+        mGzippedResponse = Fixtures.gzip(mResponse);
+    }
+
+    @Benchmark
+    public List<News> parse() throws IOException {
+        NewsBatch.Builder newsList = new NewsBatch.Builder();
+        QueryUtils.readNewsFromStream(new ByteArrayInputStream(mResponse), newsList);
+        return newsList.build();
+    }
+
+    /**
+     * Parsing of a gzipped body, which includes inflating it.
+     */
+    @Benchmark
+    public List<News> parseGzipped() throws IOException {
+        NewsBatch.Builder newsList = new NewsBatch.Builder();
+        QueryUtils.readNewsFromStream(
+                new GZIPInputStream(new ByteArrayInputStream(mGzippedResponse)), newsList);
+        return newsList.build();
+    }
+}
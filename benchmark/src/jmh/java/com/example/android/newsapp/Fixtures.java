@@ -0,0 +1,50 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Synthetic Guardian search responses, one per page size, stored in src/jmh/resources/fixtures
+ * as search-{page size}.json. They are shaped like the real ones but not recorded from the API,
+ * so results measured over them are not those of production payloads.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the bytes of the search response with the given number of results.
+     */
+    static byte[] searchResponse(int pageSize) throws IOException {
+        String name = "/fixtures/search-" + pageSize + ".json";
+        InputStream inputStream = Fixtures.class.getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Returns the given bytes gzipped, as the server sends them.
+     */
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+        gzipOutput.write(data);
+        gzipOutput.close();
+        return output.toByteArray();
+    }
+}